@@ -0,0 +1,185 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load test for ApiServer. Without a url it starts its own server on a free localhost
+// port over a system populated in a temp directory, never in src/data. Requests run on a
+// pool of `concurrency` threads, so at most that many of them are in flight at once.
+// The mix is mostly reads with some aircraft, operations and retimings added.
+//
+// Usage: ApiLoadTest [requests] [concurrency] [url], e.g. "20000 2000"
+public class ApiLoadTest {
+    private static final int FLEET_SIZE = 100;
+    private static final int OPERATION_COUNT = 2000;
+    private static final long SEED = 42;
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        File dataDirectory = null;
+        MainSystem mainSystem = null;
+        ApiServer server = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2];
+        } else {
+            dataDirectory = Files.createTempDirectory("shachar-api").toFile();
+            mainSystem = populate(dataDirectory.getPath());
+            if (System.getProperty(ApiServer.NODELAY_PROPERTY) == null) {
+                System.setProperty(ApiServer.NODELAY_PROPERTY, "true");
+            }
+            server = ApiServer.onLocalhost(mainSystem, 0);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+
+        try {
+            run(url, requests, concurrency);
+        } finally {
+            if (server != null) {
+                server.stop();
+                mainSystem.close();
+                deleteDirectory(dataDirectory);
+            }
+        }
+    }
+
+    private static void run(String url, int requests, int concurrency) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+        AtomicInteger failures = new AtomicInteger();
+        AtomicLong maxInFlight = new AtomicLong();
+        AtomicInteger running = new AtomicInteger();
+        Random random = new Random(SEED);
+
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(concurrency)) {
+            for (int i = 0; i < requests; i++) {
+                HttpRequest request = nextRequest(url, i, random);
+                int index = i;
+                inFlight.acquire();
+                executor.execute(() -> {
+                    maxInFlight.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        // Conflicts are expected, random retimings may hit the same names
+                        if (response.statusCode() >= 500 || response.statusCode() == 404) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        latencies[index] = System.nanoTime() - start;
+                        running.decrementAndGet();
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        Arrays.sort(latencies);
+        System.out.printf("%d requests, %d concurrent (peak %d), %d failed%n", requests, concurrency,
+                maxInFlight.get(), failures.get());
+        System.out.printf("%.1f ms total, %.0f requests/s%n", elapsed / 1e6, requests / (elapsed / 1e9));
+        System.out.printf("latency ms: p50 %.2f  p90 %.2f  p99 %.2f  max %.2f%n", percentile(latencies, 0.5),
+                percentile(latencies, 0.9), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static HttpRequest nextRequest(String url, int i, Random random) {
+        int kind = random.nextInt(100);
+        if (kind < 40) {
+            LocalDateTime start = randomStart(random);
+            return get(url + "/operations?start=" + encode(start) + "&end=" + encode(start.plusDays(1)));
+        }
+        if (kind < 70) {
+            return get(url + "/operations/op" + random.nextInt(OPERATION_COUNT));
+        }
+        if (kind < 80) {
+            return get(url + "/operations/unprepared?hours=" + (24 * (1 + random.nextInt(30))));
+        }
+        if (kind < 85) {
+            return send("POST", url + "/aircraft", "{\"id\":" + (FLEET_SIZE + i) + "}");
+        }
+        if (kind < 95) {
+            LocalDateTime start = randomStart(random);
+            return send("POST", url + "/operations", "{\"operationName\":\"load" + i + "\","
+                    + "\"taskDescription\":\"load\",\"numOfAircrafts\":" + (1 + random.nextInt(4)) + ","
+                    + "\"start\":\"" + Utils.dateTimeToString(start) + "\","
+                    + "\"end\":\"" + Utils.dateTimeToString(start.plusHours(1 + random.nextInt(6))) + "\","
+                    + "\"armamentType\":\"load\",\"x\":" + random.nextInt(100) + ",\"y\":" + random.nextInt(100) + "}");
+        }
+        LocalDateTime start = randomStart(random);
+        return send("PUT", url + "/operations/op" + random.nextInt(OPERATION_COUNT) + "/time",
+                "{\"start\":\"" + Utils.dateTimeToString(start) + "\",\"end\":\""
+                        + Utils.dateTimeToString(start.plusHours(2)) + "\"}");
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofSeconds(60)).GET().build();
+    }
+
+    private static HttpRequest send(String method, String uri, String body) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static String encode(LocalDateTime dateTime) {
+        return Utils.dateTimeToString(dateTime).replace(" ", "%20");
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static MainSystem populate(String dataDirectory) {
+        MainSystem mainSystem = new MainSystem(true, null, dataDirectory);
+        mainSystem.enableGroupCommit(100);
+        Random random = new Random(SEED);
+        for (int id = 0; id < FLEET_SIZE; id++) {
+            mainSystem.addAircraft(id);
+        }
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            LocalDateTime start = randomStart(random);
+            TaskInformation taskInformation = new TaskInformation("op" + i, "load", 1 + random.nextInt(4));
+            mainSystem.addOperation(new AttackOperation(taskInformation, "load", new Point(random.nextInt(100),
+                    random.nextInt(100)), start, start.plusHours(1 + random.nextInt(6))));
+        }
+        return mainSystem;
+    }
+
+    private static LocalDateTime randomStart(Random random) {
+        return BASE.plusMinutes(random.nextInt(365 * 24 * 60));
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,123 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Compares the assignment engines on the same fleet and operations: how many operations
+// end up with a crew they can be ready with, and how long a full reassignment takes.
+// Like SchedulingBenchmark, every run works on data in a temp directory.
+//
+// Usage: AssignmentEngineBenchmark [fleet sizes] [operation counts] [solver budget ms],
+// e.g. "20,100 1000,5000 200"
+public class AssignmentEngineBenchmark {
+    private static final long SEED = 42;
+    private static final int PLANNING_DAYS = 30;
+    private static final int REPETITIONS = 3;
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(2).withSecond(0).withNano(0);
+
+    private interface EngineFactory {
+        AssignmentEngine create();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] fleetSizes = parseSizes(args.length > 0 ? args[0] : "20,100");
+        int[] operationCounts = parseSizes(args.length > 1 ? args[1] : "1000,5000");
+        long budgetMillis = args.length > 2 ? Long.parseLong(args[2]) : 200;
+
+        System.out.printf("%-10s %8s %10s %14s %14s %12s %10s%n", "engine", "fleet", "operations",
+                "ready crews", "of possible", "assignments", "ms");
+        for (int fleetSize : fleetSizes) {
+            for (int operationCount : operationCounts) {
+                run("greedy", fleetSize, operationCount, GreedyAssignmentEngine::new);
+                run("parallel", fleetSize, operationCount, ParallelAssignmentEngine::new);
+                run("interval", fleetSize, operationCount,
+                        () -> new IntervalAssignmentEngine(Duration.ofMillis(budgetMillis)));
+            }
+        }
+    }
+
+    private static void run(String name, int fleetSize, int operationCount, EngineFactory engineFactory)
+            throws IOException {
+        long totalNanos = 0;
+        int readyCrews = 0;
+        int possible = 0;
+        int assignments = 0;
+        for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+            File dataDirectory = Files.createTempDirectory("shachar-bench").toFile();
+            try {
+                MainSystem mainSystem = populate(dataDirectory.getPath(), fleetSize, operationCount,
+                        new Random(SEED + repetition));
+                mainSystem.setAssignmentEngine(engineFactory.create());
+
+                long start = System.nanoTime();
+                mainSystem.reassignAllAircrafts();
+                totalNanos += System.nanoTime() - start;
+
+                // Only attack operations count as possible, the intelligence readiness rule is met by any crew
+                for (OperationView operation : mainSystem.getSnapshot().getOperations()) {
+                    assignments += operation.getAssignedAircraftCount();
+                    if (operation.isAttackOperation()) {
+                        possible++;
+                        if (operation.getAssignedAircraftCount() == operation.getTaskInformation().getNumOfAircrafts()) {
+                            readyCrews++;
+                        }
+                    }
+                }
+                mainSystem.close();
+            } finally {
+                deleteDirectory(dataDirectory);
+            }
+        }
+        System.out.printf("%-10s %8d %10d %14d %14d %12d %10.1f%n", name, fleetSize, operationCount,
+                readyCrews / REPETITIONS, possible / REPETITIONS, assignments / REPETITIONS,
+                totalNanos / (double) REPETITIONS / 1_000_000);
+    }
+
+    private static MainSystem populate(String dataDirectory, int fleetSize, int operationCount, Random random) {
+        MainSystem mainSystem = new MainSystem(true, null, dataDirectory);
+        List<Integer> aircraftIds = new ArrayList<>();
+        for (int id = 0; id < fleetSize; id++) {
+            aircraftIds.add(id);
+        }
+        List<Operation> operations = new ArrayList<>();
+        for (int i = 0; i < operationCount; i++) {
+            operations.add(randomOperation("op" + i, random));
+        }
+        mainSystem.importBatch(aircraftIds, operations, List.of());
+        return mainSystem;
+    }
+
+    private static Operation randomOperation(String name, Random random) {
+        LocalDateTime start = BASE.plusMinutes(random.nextInt(PLANNING_DAYS * 24 * 60));
+        LocalDateTime end = start.plusMinutes(30 + random.nextInt(6 * 60));
+        TaskInformation taskInformation = new TaskInformation(name, "benchmark", 1 + random.nextInt(4));
+        if (random.nextInt(4) > 0) {
+            return new AttackOperation(taskInformation, "bench", new Point(random.nextDouble() * 100,
+                    random.nextDouble() * 100), start, end);
+        }
+        return new IntelligenceGatheringOperation(taskInformation, "bench", "bench", start, end);
+    }
+
+    private static int[] parseSizes(String sizes) {
+        String[] parts = sizes.split(",");
+        int[] parsed = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Integer.parseInt(parts[i].trim());
+        }
+        return parsed;
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,284 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Checks ChangeFeed ordering, backpressure and overflow with random subscribers. Every
+// round publishes batches with versions 1..n on a fresh feed, from one thread like
+// MainSystem's publish does, and subscribes a random mix before and in between: unbounded,
+// requesting in chunks, slow, stalled after a fixed demand, cancelling, throwing from
+// onNext and requesting 0. Every subscriber has to see:
+//   - the versions from the first one published after it subscribed, without gaps
+//   - never more batches than it requested, and never two signals at the same time
+//   - at most one terminal signal and nothing after it, a cancel or a throw
+//   - no more batches waiting for it than the buffer holds
+// A round with room for all batches has to complete everyone who kept requesting. A tight
+// round may drop them with an OverflowException instead, and has to drop the stalled
+// subscribers whose unrequested batches outgrow the buffer, one of them by a single batch.
+//
+// Usage: ChangeFeedCheck [rounds] [max batches per round], e.g. "300 400"
+public class ChangeFeedCheck {
+    private static final long SEED = 42;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private enum Kind { UNBOUNDED, CHUNKED, SLOW, STALLED, CANCELLING, THROWING, INVALID }
+
+    private static class CheckSubscriber implements Flow.Subscriber<ChangeBatch> {
+        private final Kind kind;
+        private final long firstVersion;
+        private final int amount;
+        private final List<String> failures;
+        private final AtomicBoolean signalling;
+        private Flow.Subscription subscription;
+        private long demand;
+        private volatile long received;
+        private volatile long lastVersion;
+        private volatile boolean stopped;
+        private volatile boolean completed;
+        private volatile Throwable error;
+
+        // amount is the chunk for CHUNKED and SLOW, the demand for STALLED and the batch
+        // to stop at for CANCELLING and THROWING
+        private CheckSubscriber(Kind kind, long firstVersion, int amount, List<String> failures) {
+            this.kind = kind;
+            this.firstVersion = firstVersion;
+            this.amount = amount;
+            this.failures = failures;
+            this.signalling = new AtomicBoolean();
+        }
+
+        public void onSubscribe(Flow.Subscription subscription) {
+            enter("onSubscribe");
+            this.subscription = subscription;
+            if (this.kind == Kind.INVALID) {
+                subscription.request(0);
+            } else if (this.kind == Kind.CHUNKED || this.kind == Kind.SLOW || this.kind == Kind.STALLED) {
+                request(this.amount);
+            } else {
+                request(Long.MAX_VALUE);
+            }
+            leave();
+        }
+
+        public void onNext(ChangeBatch batch) {
+            enter("onNext");
+            if (this.demand == 0) {
+                fail("got " + batch + " without demand");
+            } else if (this.demand != Long.MAX_VALUE) {
+                this.demand--;
+            }
+            long expected = this.received == 0 ? this.firstVersion : this.lastVersion + 1;
+            if (batch.getVersion() != expected) {
+                fail("got v" + batch.getVersion() + " instead of v" + expected);
+            }
+            this.lastVersion = batch.getVersion();
+            this.received++;
+            if (this.kind == Kind.CHUNKED) {
+                // Requests before running dry half of the time, so demand adds up
+                if (this.demand <= this.received % 2 * this.amount / 2) {
+                    request(this.amount);
+                }
+            } else if (this.kind == Kind.SLOW) {
+                if (this.received % 16 == 0) {
+                    sleep();
+                }
+                if (this.demand == 0) {
+                    request(this.amount);
+                }
+            } else if (this.kind == Kind.CANCELLING && this.received == this.amount) {
+                this.stopped = true;
+                this.subscription.cancel();
+            } else if (this.kind == Kind.THROWING && this.received == this.amount) {
+                this.stopped = true;
+                leave();
+                throw new IllegalStateException("subscriber failure");
+            }
+            leave();
+        }
+
+        public void onError(Throwable throwable) {
+            enter("onError");
+            this.error = throwable;
+            leave();
+        }
+
+        public void onComplete() {
+            enter("onComplete");
+            this.completed = true;
+            leave();
+        }
+
+        private void request(long n) {
+            this.demand = this.demand + n < 0 ? Long.MAX_VALUE : this.demand + n;
+            this.subscription.request(n);
+        }
+
+        private void enter(String signal) {
+            if (!this.signalling.compareAndSet(false, true)) {
+                fail(signal + " overlaps another signal");
+            }
+            if (this.stopped || this.completed || this.error != null) {
+                fail(signal + " after " + (this.stopped ? "stopping" : "the terminal signal"));
+            }
+        }
+
+        private void leave() {
+            this.signalling.set(false);
+        }
+
+        private boolean terminated() {
+            return this.completed || this.error != null;
+        }
+
+        private void fail(String message) {
+            synchronized (this.failures) {
+                this.failures.add(this + ": " + message);
+            }
+        }
+
+        public String toString() {
+            return this.kind + " from v" + this.firstVersion + " (" + this.amount + ")";
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int maxBatches = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+
+        Random random = new Random(SEED);
+        List<String> failures = new ArrayList<>();
+        int subscribers = 0;
+        int overflows = 0;
+        for (int round = 0; round < rounds && failures.isEmpty(); round++) {
+            int batches = 1 + random.nextInt(maxBatches);
+            boolean roomy = random.nextBoolean();
+            int capacity = roomy ? batches : 1 + random.nextInt(32);
+            ChangeFeed feed = new ChangeFeed(capacity);
+            List<CheckSubscriber> roundSubscribers = new ArrayList<>();
+            if (!roomy && batches - capacity > 1) {
+                // Leaves exactly one batch more than the buffer holds
+                CheckSubscriber edge = new CheckSubscriber(Kind.STALLED, 1, batches - capacity - 1, failures);
+                roundSubscribers.add(edge);
+                feed.subscribe(edge);
+            }
+            for (long version = 1; version <= batches; version++) {
+                if (version == 1 || random.nextInt(batches / 4 + 1) == 0) {
+                    int count = version == 1 ? 3 + random.nextInt(4) : 1;
+                    for (int i = 0; i < count; i++) {
+                        CheckSubscriber subscriber = randomSubscriber(random, version, batches, failures);
+                        roundSubscribers.add(subscriber);
+                        feed.subscribe(subscriber);
+                    }
+                }
+                feed.offer(new ChangeBatch(version, "check", List.of()));
+                if (random.nextInt(32) == 0) {
+                    Thread.yield();
+                }
+            }
+            feed.close();
+            subscribers += roundSubscribers.size();
+
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            for (CheckSubscriber subscriber : roundSubscribers) {
+                while (!settled(subscriber, batches) && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                }
+            }
+            // Late signals would show up in this time
+            Thread.sleep(5);
+            for (CheckSubscriber subscriber : roundSubscribers) {
+                String outcome = outcome(subscriber, batches, capacity, roomy);
+                if (outcome != null) {
+                    failures.add("round " + round + ", " + batches + " batches, capacity " + capacity + ", "
+                            + subscriber + ": " + outcome);
+                }
+                if (subscriber.error instanceof ChangeFeed.OverflowException) {
+                    overflows++;
+                }
+            }
+        }
+        for (String failure : failures) {
+            System.out.println(failure);
+        }
+        System.out.printf("%d rounds, %d subscribers, %d overflows, %d failures%n", rounds, subscribers, overflows,
+                failures.size());
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static CheckSubscriber randomSubscriber(Random random, long firstVersion, int batches,
+                                                    List<String> failures) {
+        Kind kind = Kind.values()[random.nextInt(Kind.values().length)];
+        int amount = 0;
+        if (kind == Kind.CHUNKED || kind == Kind.SLOW) {
+            amount = 1 + random.nextInt(16);
+        } else if (kind == Kind.STALLED || kind == Kind.CANCELLING || kind == Kind.THROWING) {
+            amount = 1 + random.nextInt(batches);
+        }
+        return new CheckSubscriber(kind, firstVersion, amount, failures);
+    }
+
+    // Batches the subscriber can get at most
+    private static long available(CheckSubscriber subscriber, int batches) {
+        return batches - subscriber.firstVersion + 1;
+    }
+
+    // Whether the subscriber got everything it can still get
+    private static boolean settled(CheckSubscriber subscriber, int batches) {
+        if (subscriber.terminated() || subscriber.stopped) {
+            return true;
+        }
+        // Nothing is offered any more, a stalled subscriber that got its demand keeps its buffer
+        return subscriber.kind == Kind.STALLED
+                && subscriber.received == Math.min(subscriber.amount, available(subscriber, batches));
+    }
+
+    // Null when the end state is one the feed allows
+    private static String outcome(CheckSubscriber subscriber, int batches, int capacity, boolean roomy) {
+        long available = available(subscriber, batches);
+        Throwable error = subscriber.error;
+        String state = subscriber.received + " of " + available + " batches, "
+                + (subscriber.completed ? "completed" : error != null ? error.toString() : "open");
+        if (subscriber.completed && subscriber.received != available) {
+            return "completed early with " + state;
+        }
+        if (error instanceof ChangeFeed.OverflowException && roomy) {
+            return "overflowed with room left, " + state;
+        }
+        boolean overflowed = !roomy && error instanceof ChangeFeed.OverflowException;
+        if (!subscriber.terminated() && !subscriber.stopped && available - subscriber.received > capacity) {
+            return "holds more than the buffer, " + state;
+        }
+        if (subscriber.kind == Kind.INVALID) {
+            if (!(error instanceof IllegalArgumentException) && !overflowed || subscriber.received > 0) {
+                return "requesting 0 ended with " + state;
+            }
+        } else if (subscriber.kind == Kind.STALLED) {
+            if (!roomy && available - subscriber.amount > capacity && !overflowed) {
+                return "was never dropped, " + state;
+            }
+            if (roomy && (subscriber.received != Math.min(subscriber.amount, available)
+                    || subscriber.amount < available && subscriber.terminated())) {
+                return "stalled with " + state;
+            }
+        } else if (subscriber.kind == Kind.CANCELLING || subscriber.kind == Kind.THROWING) {
+            boolean stoppedAtAmount = subscriber.stopped && subscriber.received == subscriber.amount;
+            if (!stoppedAtAmount && !subscriber.completed && !overflowed) {
+                return "stopping at " + subscriber.amount + " ended with " + state;
+            }
+        } else if (!subscriber.completed && !overflowed) {
+            return "kept requesting but ended with " + state;
+        }
+        return null;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
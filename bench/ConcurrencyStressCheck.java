@@ -0,0 +1,342 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs operator threads against one MainSystem at the same time, each mixing adds,
+// retimes, releases, drawer conversions, full passes, single assignments and queries.
+// Then, over rounds, the threads only assign through the read-locked assignAircraftToOperation:
+// each one its own aircraft to its own operations, and all of them the same shared aircraft
+// to the same shared operations that collide in time, released again before each round.
+// After every round it checks, and at the end again for every operation:
+//   - every assignment that reported success is in a crew, the own operations are full
+//   - no operation has more aircraft than it asked for, and all of them exist
+//   - no aircraft holds two operations closer than the turnaround
+// At the end it also checks:
+//   - the published snapshot equals the live operations
+//   - a system reloaded from the data directory equals the live one
+// The data lives in a temp directory.
+//
+// Usage: ConcurrencyStressCheck [threads] [operations per thread], e.g. "8 3000"
+public class ConcurrencyStressCheck {
+    private static final long SEED = 42;
+    private static final int INITIAL_FLEET = 20;
+    private static final int PLANNING_DAYS = 14;
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+    // The assignment phase plans after everything the mixed phase can reach
+    private static final LocalDateTime ASSIGNMENT_BASE = BASE.plusDays(PLANNING_DAYS + 1);
+    private static final int OWN_OPERATIONS = 20;
+    private static final int OWN_AIRCRAFT = 5;
+    private static final int SHARED_OPERATIONS = 40;
+    private static final int SHARED_AIRCRAFT = 8;
+    private static final int CREW_SIZE = 3;
+    // Shared operations are released and assigned again every round
+    private static final int ASSIGNMENT_ROUNDS = 100;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int operationsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 3000;
+        if (Runtime.getRuntime().availableProcessors() < 2) {
+            // The threads only interleave at time slices, races between a check and its write rarely show
+            System.out.println("warning: a single processor, run on more to exercise the races");
+        }
+
+        File dataDirectory = Files.createTempDirectory("shachar-stress").toFile();
+        List<String> failures = new ArrayList<>();
+        try {
+            MainSystem mainSystem = new MainSystem(true, null, dataDirectory.getPath());
+            for (int id = 0; id < INITIAL_FLEET; id++) {
+                mainSystem.addAircraft(id);
+            }
+            Map<String, Boolean> operationNames = new ConcurrentHashMap<>();
+
+            long started = System.nanoTime();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                workers.add(executor.submit(() -> {
+                    run(mainSystem, thread, operationsPerThread, operationNames);
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            long elapsed = System.nanoTime() - started;
+
+            List<String> assignmentOperations = prepareAssignments(mainSystem, threads);
+            List<String> sharedOperations = new ArrayList<>();
+            for (String name : assignmentOperations) {
+                operationNames.put(name, true);
+                if (name.startsWith("shared")) {
+                    sharedOperations.add(name);
+                }
+            }
+            started = System.nanoTime();
+            int ownAssignments = 0;
+            int sharedAssignments = 0;
+            for (int round = 0; round < ASSIGNMENT_ROUNDS; round++) {
+                if (round > 0) {
+                    for (String name : sharedOperations) {
+                        mainSystem.releaseAssignedAircrafts(mainSystem.getOperationByName(name));
+                    }
+                }
+                int sharedInRound = 0;
+                List<Future<int[]>> assigners = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int thread = t;
+                    int seed = round;
+                    assigners.add(executor.submit(() -> assign(mainSystem, thread, seed)));
+                }
+                for (Future<int[]> assigner : assigners) {
+                    int[] assigned = assigner.get();
+                    ownAssignments += assigned[0];
+                    sharedInRound += assigned[1];
+                }
+                sharedAssignments += sharedInRound;
+                int crewed = checkCrews(mainSystem, assignmentOperations, failures);
+                if (crewed != ownAssignments + sharedInRound) {
+                    failures.add("round " + round + ": " + (ownAssignments + sharedInRound)
+                            + " assignments reported success but the crews hold " + crewed);
+                }
+            }
+            long assignmentElapsed = System.nanoTime() - started;
+            executor.shutdown();
+            for (String name : assignmentOperations) {
+                int crewSize = mainSystem.getOperationCopy(mainSystem.getOperationByName(name)).getAssignedAircrafts().size();
+                if (name.startsWith("own") && crewSize != CREW_SIZE) {
+                    failures.add(name + " has " + crewSize + " aircraft instead of " + CREW_SIZE);
+                }
+            }
+
+            Map<String, String> live = new HashMap<>();
+            for (String name : operationNames.keySet()) {
+                Operation op = mainSystem.getOperationCopy(mainSystem.getOperationByName(name));
+                live.put(name, describe(op.getStart(), op.getEnd(), op.getAssignedAircrafts().toArray()));
+            }
+            checkCrews(mainSystem, operationNames.keySet(), failures);
+
+            Map<String, String> published = new HashMap<>();
+            for (OperationView view : mainSystem.getSnapshot().getOperations()) {
+                published.put(view.getOperationName(), describe(view.getStart(), view.getEnd(),
+                        view.getAssignedAircrafts()));
+            }
+            if (!published.equals(live)) {
+                failures.add("the snapshot differs from the live operations");
+            }
+            int[] aircraftIds = mainSystem.getSnapshot().getAircraftIds();
+            mainSystem.close();
+
+            MainSystem reloaded = new MainSystem(true, null, dataDirectory.getPath());
+            Map<String, String> stored = new HashMap<>();
+            for (String name : operationNames.keySet()) {
+                Operation op = reloaded.getOperationByName(name);
+                stored.put(name, op == null ? "missing"
+                        : describe(op.getStart(), op.getEnd(), op.getAssignedAircrafts().toArray()));
+            }
+            if (!stored.equals(live)) {
+                failures.add("the reloaded operations differ from the live ones");
+            }
+            for (int id : aircraftIds) {
+                if (!reloaded.hasAircraftId(id)) {
+                    failures.add("aircraft " + id + " is missing after the reload");
+                }
+            }
+            reloaded.close();
+
+            System.out.printf("%d threads x %d operations in %.1f ms, %d operations, %d aircraft%n", threads,
+                    operationsPerThread, elapsed / 1e6, live.size(), aircraftIds.length);
+            System.out.printf("%d own and %d shared assignments in %d rounds, %.1f ms%n", ownAssignments,
+                    sharedAssignments, ASSIGNMENT_ROUNDS, assignmentElapsed / 1e6);
+        } finally {
+            deleteDirectory(dataDirectory);
+        }
+
+        for (String failure : failures) {
+            System.out.println(failure);
+        }
+        System.out.println(failures.isEmpty() ? "no violations" : failures.size() + " violations");
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static void run(MainSystem mainSystem, int thread, int operations, Map<String, Boolean> operationNames) {
+        Random random = new Random(SEED + thread);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < operations; i++) {
+            String name = "t" + thread + "op" + i;
+            int kind = random.nextInt(100);
+            if (kind < 5) {
+                mainSystem.addAircraft(INITIAL_FLEET + thread * operations + i);
+            } else if (kind < 30) {
+                LocalDateTime start = randomStart(random);
+                TaskInformation taskInformation = new TaskInformation(name, "stress", 1 + random.nextInt(4));
+                if (mainSystem.addOperation(new AttackOperation(taskInformation, "stress",
+                        new Point(random.nextInt(100), random.nextInt(100)), start,
+                        start.plusHours(1 + random.nextInt(6))))) {
+                    names.add(name);
+                    operationNames.put(name, true);
+                }
+            } else if (kind < 35) {
+                LocalDateTime start = randomStart(random);
+                if (mainSystem.addDrawerOperation(name, "stress", 1 + random.nextInt(3))
+                        && mainSystem.createAttackOperation(name, start, start.plusHours(2), "stress",
+                        new Point(random.nextInt(100), random.nextInt(100)))) {
+                    names.add(name);
+                    operationNames.put(name, true);
+                }
+            } else if (kind < 50 && !names.isEmpty()) {
+                Operation op = mainSystem.getOperationByName(names.get(random.nextInt(names.size())));
+                LocalDateTime start = randomStart(random);
+                mainSystem.changeOperationTime(op, start, start.plusHours(1 + random.nextInt(6)));
+            } else if (kind < 53 && !names.isEmpty()) {
+                mainSystem.releaseAssignedAircrafts(mainSystem.getOperationByName(names.get(random.nextInt(names.size()))));
+            } else if (kind < 54) {
+                mainSystem.assignAllAircrafts();
+            } else if (kind < 62 && !names.isEmpty()) {
+                mainSystem.assignAircraftToOperation(random.nextInt(INITIAL_FLEET), names.get(random.nextInt(names.size())));
+            } else if (kind < 70) {
+                LocalDateTime start = randomStart(random);
+                mainSystem.getAllOperationsWithinTime(start, start.plusDays(1));
+            } else if (kind < 80) {
+                mainSystem.getAllUnpreparedOperations(24 * (1 + random.nextInt(PLANNING_DAYS)));
+            } else if (kind < 90 && !names.isEmpty()) {
+                mainSystem.isOperationReady(mainSystem.getOperationByName(names.get(random.nextInt(names.size()))));
+            } else {
+                LocalDateTime start = randomStart(random);
+                mainSystem.getSnapshot().getOperationsWithinTime(start, start.plusDays(1));
+            }
+        }
+    }
+
+    // Adds the operations and aircraft of the assignment phase and releases whatever the adds
+    // assigned, so only assignAircraftToOperation fills them. Own operations of a thread are
+    // three hours apart, shared operations half an hour apart and an hour long
+    private static List<String> prepareAssignments(MainSystem mainSystem, int threads) {
+        List<String> names = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < OWN_OPERATIONS; i++) {
+                names.add(addAssignmentOperation(mainSystem, ownOperation(t, i), ASSIGNMENT_BASE.plusHours(3L * i)));
+            }
+            for (int k = 0; k < OWN_AIRCRAFT; k++) {
+                mainSystem.addAircraft(ownAircraft(t, k));
+            }
+        }
+        for (int i = 0; i < SHARED_OPERATIONS; i++) {
+            names.add(addAssignmentOperation(mainSystem, sharedOperation(i), ASSIGNMENT_BASE.plusMinutes(30L * i)));
+        }
+        for (int k = 0; k < SHARED_AIRCRAFT; k++) {
+            mainSystem.addAircraft(sharedAircraft(k));
+        }
+        for (String name : names) {
+            mainSystem.releaseAssignedAircrafts(mainSystem.getOperationByName(name));
+        }
+        return names;
+    }
+
+    private static String addAssignmentOperation(MainSystem mainSystem, String name, LocalDateTime start) {
+        TaskInformation taskInformation = new TaskInformation(name, "stress", CREW_SIZE);
+        mainSystem.addOperation(new AttackOperation(taskInformation, "stress", new Point(0, 0), start,
+                start.plusHours(1)));
+        return name;
+    }
+
+    // Own operations only in the first round. Returns how many own and shared assignments succeeded
+    private static int[] assign(MainSystem mainSystem, int thread, int round) {
+        Random random = new Random(SEED + thread * (long) ASSIGNMENT_ROUNDS + round);
+        int[] assigned = new int[2];
+        for (int i = 0; round == 0 && i < OWN_OPERATIONS; i++) {
+            for (int k = 0; k < OWN_AIRCRAFT; k++) {
+                if (mainSystem.assignAircraftToOperation(ownAircraft(thread, k), ownOperation(thread, i))) {
+                    assigned[0]++;
+                }
+            }
+        }
+        for (int n = 0; n < SHARED_OPERATIONS * SHARED_AIRCRAFT; n++) {
+            if (mainSystem.assignAircraftToOperation(sharedAircraft(random.nextInt(SHARED_AIRCRAFT)),
+                    sharedOperation(random.nextInt(SHARED_OPERATIONS)))) {
+                assigned[1]++;
+            }
+        }
+        return assigned;
+    }
+
+    // Adds a failure for every operation over capacity, unknown aircraft and aircraft holding
+    // two operations closer than the turnaround. Returns how many aircraft the crews hold
+    private static int checkCrews(MainSystem mainSystem, Collection<String> names, List<String> failures) {
+        int crewed = 0;
+        Map<Integer, List<Operation>> aircraftOperations = new HashMap<>();
+        for (String name : names) {
+            Operation op = mainSystem.getOperationCopy(mainSystem.getOperationByName(name));
+            AircraftIdSet crew = op.getAssignedAircrafts();
+            crewed += crew.size();
+            if (crew.size() > op.getTaskInformation().getNumOfAircrafts()) {
+                failures.add(name + " is over capacity: " + crew);
+            }
+            for (int i = 0; i < crew.size(); i++) {
+                if (!mainSystem.hasAircraftId(crew.get(i))) {
+                    failures.add(name + " has unknown aircraft " + crew.get(i));
+                }
+                aircraftOperations.computeIfAbsent(crew.get(i), id -> new ArrayList<>()).add(op);
+            }
+        }
+        for (Map.Entry<Integer, List<Operation>> entry : aircraftOperations.entrySet()) {
+            List<Operation> schedule = entry.getValue();
+            schedule.sort((first, second) -> Long.compare(first.getStartMinute(), second.getStartMinute()));
+            for (int i = 1; i < schedule.size(); i++) {
+                if (!schedule.get(i).canAssignWithTime(schedule.get(i - 1))) {
+                    failures.add("aircraft " + entry.getKey() + " holds both "
+                            + schedule.get(i - 1).getTaskInformation().getOperationName() + " and "
+                            + schedule.get(i).getTaskInformation().getOperationName());
+                }
+            }
+        }
+        return crewed;
+    }
+
+    private static String ownOperation(int thread, int i) {
+        return "own" + thread + "op" + i;
+    }
+
+    private static int ownAircraft(int thread, int k) {
+        return 1_000_000 + thread * OWN_AIRCRAFT + k;
+    }
+
+    private static String sharedOperation(int i) {
+        return "shared" + i;
+    }
+
+    private static int sharedAircraft(int k) {
+        return 2_000_000 + k;
+    }
+
+    private static String describe(LocalDateTime start, LocalDateTime end, int[] crew) {
+        return start + " " + end + " " + Arrays.toString(crew);
+    }
+
+    private static LocalDateTime randomStart(Random random) {
+        return BASE.plusMinutes(random.nextInt(PLANNING_DAYS * 24 * 60));
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,166 @@
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Checks the events of ReadinessScheduler against the rule they replace. A manual clock
+// moves forward in random steps while operations are added, retimed and get their crews
+// changed, each change handed to operationsChanged like MainSystem does. After every step:
+//   - the readiness the listener last reported equals isOperationReady()
+//   - readinessChanged never repeats the value it reported before
+//   - enteredWindowUnprepared came exactly once for every time an operation got into its
+//     window (opened or moved into it) without a ready crew
+// The clock stands 30 seconds into the minute, the scheduler works on whole minutes and
+// leaves the exact instants at the window edges to isOperationReady.
+//
+// Usage: ReadinessSchedulerCheck [steps], e.g. "20000"
+public class ReadinessSchedulerCheck {
+    private static final long SEED = 42;
+    private static final int PLANNING_HOURS = 48;
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+
+    private static class ManualClock extends Clock {
+        private Instant instant;
+
+        private ManualClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        public Instant instant() {
+            return this.instant;
+        }
+    }
+
+    private static class Reported {
+        private boolean ready;
+        private int enteredUnprepared;
+        private int repeated;
+    }
+
+    private static class Expected {
+        private boolean inWindow;
+        private int enteredUnprepared;
+    }
+
+    public static void main(String[] args) {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        Random random = new Random(SEED);
+        ManualClock clock = new ManualClock(BASE.plusSeconds(30).toInstant(ZoneOffset.UTC));
+        MinuteClock minuteClock = new MinuteClock(clock);
+        Map<Operation, Reported> reported = new IdentityHashMap<>();
+        ReadinessListener listener = new ReadinessListener() {
+            public void enteredWindowUnprepared(Operation operation) {
+                reported.computeIfAbsent(operation, key -> new Reported()).enteredUnprepared++;
+            }
+
+            public void readinessChanged(Operation operation, boolean ready) {
+                Reported state = reported.computeIfAbsent(operation, key -> new Reported());
+                if (state.ready == ready) {
+                    state.repeated++;
+                }
+                state.ready = ready;
+            }
+        };
+        // Notifications run right away, so they are all in before the step is checked
+        ReadinessScheduler scheduler = new ReadinessScheduler(listener, Runnable::run);
+        List<Operation> operations = new ArrayList<>();
+        Map<Operation, Expected> expected = new IdentityHashMap<>();
+        int nextAircraftId = 0;
+        int mismatches = 0;
+        int events = 0;
+        for (int step = 0; step < steps && mismatches < 20; step++) {
+            long nowMinute = minuteClock.nowMinute();
+            int action = random.nextInt(10);
+            if (operations.isEmpty() || action < 2) {
+                Operation operation = randomOperation(random, minuteClock, "op" + step);
+                operations.add(operation);
+                expected.put(operation, new Expected());
+                scheduler.operationsChanged(List.of(operation), nowMinute);
+            } else if (action < 4) {
+                Operation operation = operations.get(random.nextInt(operations.size()));
+                LocalDateTime start = minuteClock.now().withSecond(0)
+                        .plusMinutes(random.nextInt(PLANNING_HOURS * 60) - 60);
+                operation.setStart(start);
+                operation.setEnd(start.plusHours(1 + random.nextInt(3)));
+                scheduler.operationsChanged(List.of(operation), nowMinute);
+            } else if (action < 6) {
+                Operation operation = operations.get(random.nextInt(operations.size()));
+                if (operation.reachedCapacity() || random.nextInt(4) == 0) {
+                    operation.removeAllAssignedAircrafts();
+                } else {
+                    operation.assignAircraft(nextAircraftId++);
+                }
+                scheduler.operationsChanged(List.of(operation), nowMinute);
+            } else {
+                clock.instant = clock.instant.plusSeconds(60L * random.nextInt(90));
+                scheduler.advance(minuteClock.nowMinute());
+            }
+
+            nowMinute = minuteClock.nowMinute();
+            for (Operation operation : operations) {
+                Expected rule = expected.get(operation);
+                long opensAt = operation.getStartMinute() - operation.getReadinessWindowHours() * 60L;
+                boolean inWindow = nowMinute >= opensAt && nowMinute < operation.getStartMinute();
+                if (inWindow && !rule.inWindow && !operation.hasReadyCrewAssigned()) {
+                    rule.enteredUnprepared++;
+                }
+                rule.inWindow = inWindow;
+
+                Reported state = reported.getOrDefault(operation, new Reported());
+                String name = operation.getTaskInformation().getOperationName();
+                if (state.ready != operation.isOperationReady()) {
+                    mismatches++;
+                    System.out.printf("step %d: %s was reported %s, the rule says %s%n", step, name,
+                            state.ready ? "ready" : "not ready", operation.isOperationReady() ? "ready" : "not ready");
+                }
+                if (state.enteredUnprepared != rule.enteredUnprepared) {
+                    mismatches++;
+                    System.out.printf("step %d: %s entered its window unprepared %d times, reported %d%n", step,
+                            name, rule.enteredUnprepared, state.enteredUnprepared);
+                    state.enteredUnprepared = rule.enteredUnprepared;
+                }
+                if (state.repeated > 0) {
+                    mismatches++;
+                    System.out.printf("step %d: %s got the same readiness %d times in a row%n", step, name,
+                            state.repeated + 1);
+                    state.repeated = 0;
+                }
+            }
+        }
+        for (Reported state : reported.values()) {
+            events += state.enteredUnprepared;
+        }
+        System.out.printf("%d steps, %d operations, %d unprepared windows, %d mismatches%n", steps,
+                operations.size(), events, mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Attacks and intelligence gathering starting from an hour ago up to the planning horizon
+    private static Operation randomOperation(Random random, MinuteClock clock, String name) {
+        LocalDateTime start = clock.now().withSecond(0).plusMinutes(random.nextInt(PLANNING_HOURS * 60) - 60);
+        LocalDateTime end = start.plusHours(1 + random.nextInt(3));
+        TaskInformation taskInformation = new TaskInformation(name, "check", 1 + random.nextInt(4));
+        Operation operation = random.nextBoolean()
+                ? new AttackOperation(taskInformation, "check", new Point(0, 0), start, end)
+                : new IntelligenceGatheringOperation(taskInformation, "check", "(0,0) -> (1,1)", start, end);
+        operation.setClock(clock);
+        return operation;
+    }
+}
@@ -0,0 +1,99 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+// Checks that the incremental reschedule of changeOperationTime gives the same crews as
+// the full pass it replaced. Two systems start from the same saturated state. The first
+// one retimes through changeOperationTime, the second one releases the operation, moves
+// it and runs assignAllAircrafts. After every retime all crews have to be equal.
+// Both systems work on data in temp directories.
+//
+// Usage: RetimeEquivalenceCheck [retimes] [fleet size] [operation count], e.g. "400 20 300"
+public class RetimeEquivalenceCheck {
+    private static final long SEED = 42;
+    private static final int PLANNING_DAYS = 14;
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+
+    public static void main(String[] args) throws IOException {
+        int retimes = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int fleetSize = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int operationCount = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+
+        File incrementalDirectory = Files.createTempDirectory("shachar-check").toFile();
+        File fullDirectory = Files.createTempDirectory("shachar-check").toFile();
+        int mismatches = 0;
+        try {
+            MainSystem incremental = populate(incrementalDirectory.getPath(), fleetSize, operationCount);
+            MainSystem full = populate(fullDirectory.getPath(), fleetSize, operationCount);
+            Random random = new Random(SEED);
+            for (int i = 0; i < retimes; i++) {
+                String name = "op" + random.nextInt(operationCount);
+                LocalDateTime start = randomStart(random);
+                LocalDateTime end = start.plusHours(1 + random.nextInt(6));
+
+                incremental.changeOperationTime(incremental.getOperationByName(name), start, end);
+
+                // The full pass reads neither index, so moving the operation directly is enough here
+                Operation moved = full.getOperationByName(name);
+                full.releaseAssignedAircrafts(moved);
+                moved.setStart(start);
+                moved.setEnd(end);
+                full.assignAllAircrafts();
+
+                for (int j = 0; j < operationCount; j++) {
+                    String crew = incremental.getOperationByName("op" + j).getAssignedAircrafts().toString();
+                    String expected = full.getOperationByName("op" + j).getAssignedAircrafts().toString();
+                    if (!crew.equals(expected)) {
+                        mismatches++;
+                        System.out.printf("retime %d of %s: op%d has %s, the full pass gives %s%n", i, name, j,
+                                crew, expected);
+                    }
+                }
+            }
+            incremental.close();
+            full.close();
+        } finally {
+            deleteDirectory(incrementalDirectory);
+            deleteDirectory(fullDirectory);
+        }
+        System.out.printf("%d retimes, %d fleet, %d operations, %d mismatches%n", retimes, fleetSize,
+                operationCount, mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Adding operations one by one assigns in operation order, the full pass starts the
+    // state over in aircraft order so both systems begin saturated
+    private static MainSystem populate(String dataDirectory, int fleetSize, int operationCount) {
+        MainSystem mainSystem = new MainSystem(true, null, dataDirectory);
+        Random random = new Random(SEED);
+        for (int id = 0; id < fleetSize; id++) {
+            mainSystem.addAircraft(id);
+        }
+        for (int i = 0; i < operationCount; i++) {
+            LocalDateTime start = randomStart(random);
+            TaskInformation taskInformation = new TaskInformation("op" + i, "check", 1 + random.nextInt(4));
+            mainSystem.addOperation(new AttackOperation(taskInformation, "check", new Point(random.nextInt(100),
+                    random.nextInt(100)), start, start.plusHours(1 + random.nextInt(6))));
+        }
+        mainSystem.reassignAllAircrafts();
+        return mainSystem;
+    }
+
+    private static LocalDateTime randomStart(Random random) {
+        return BASE.plusMinutes(random.nextInt(PLANNING_DAYS * 24 * 60));
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,187 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Micro benchmark for the MainSystem hot paths. Every measurement runs on a freshly
+// populated system whose data lives in a temp directory, never in src/data.
+//
+// Usage: SchedulingBenchmark [fleet sizes] [operation counts], e.g. "100,1000 1000,10000"
+public class SchedulingBenchmark {
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final int MUTATIONS_PER_ITERATION = 100;
+    private static final int QUERIES_PER_ITERATION = 1000;
+    private static final long SEED = 42;
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+
+    // Keeps the JIT from dropping the work whose result nobody reads
+    private static long sink;
+
+    private interface Scenario {
+        // Returns how many operations the timed part performed
+        int run(MainSystem mainSystem, Random random, String dataDirectory);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] fleetSizes = parseSizes(args.length > 0 ? args[0] : "100,1000");
+        int[] operationCounts = parseSizes(args.length > 1 ? args[1] : "1000,10000");
+
+        System.out.printf("%-28s %8s %10s %14s%n", "benchmark", "fleet", "operations", "us/op");
+        for (int fleetSize : fleetSizes) {
+            for (int operationCount : operationCounts) {
+                runAll(fleetSize, operationCount);
+            }
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+
+    private static void runAll(int fleetSize, int operationCount) throws IOException {
+        measure("addAircraft", fleetSize, operationCount, (mainSystem, random, dataDirectory) -> {
+            for (int i = 0; i < MUTATIONS_PER_ITERATION; i++) {
+                mainSystem.addAircraft(fleetSize + i);
+            }
+            return MUTATIONS_PER_ITERATION;
+        });
+        measure("addOperation", fleetSize, operationCount, (mainSystem, random, dataDirectory) -> {
+            for (int i = 0; i < MUTATIONS_PER_ITERATION; i++) {
+                mainSystem.addOperation(randomOperation("bench" + i, random));
+            }
+            return MUTATIONS_PER_ITERATION;
+        });
+        measure("changeOperationTime", fleetSize, operationCount, (mainSystem, random, dataDirectory) -> {
+            for (int i = 0; i < MUTATIONS_PER_ITERATION; i++) {
+                Operation op = mainSystem.getOperationByName("op" + random.nextInt(operationCount));
+                LocalDateTime start = randomStart(random);
+                mainSystem.changeOperationTime(op, start, start.plusHours(1 + random.nextInt(6)));
+            }
+            return MUTATIONS_PER_ITERATION;
+        });
+        measure("getAllOperationsWithinTime", fleetSize, operationCount, (mainSystem, random, dataDirectory) -> {
+            for (int i = 0; i < QUERIES_PER_ITERATION; i++) {
+                LocalDateTime start = randomStart(random);
+                sink += mainSystem.getAllOperationsWithinTime(start, start.plusDays(1)).size();
+            }
+            return QUERIES_PER_ITERATION;
+        });
+        measure("attack radius query", fleetSize, operationCount, (mainSystem, random, dataDirectory) -> {
+            for (int i = 0; i < QUERIES_PER_ITERATION; i++) {
+                LocalDateTime start = randomStart(random);
+                sink += mainSystem.getAttackOperationsWithinRadius(random.nextDouble() * 100,
+                        random.nextDouble() * 100, 10, start, start.plusDays(7)).size();
+            }
+            return QUERIES_PER_ITERATION;
+        });
+        measure("route corridor query", fleetSize, operationCount, (mainSystem, random, dataDirectory) -> {
+            for (int i = 0; i < QUERIES_PER_ITERATION; i++) {
+                LocalDateTime start = randomStart(random);
+                double x = random.nextDouble() * 100;
+                sink += mainSystem.getIntelligenceOperationsCrossingBounds(x, 0, x + 5, 100, start,
+                        start.plusDays(7)).size();
+            }
+            return QUERIES_PER_ITERATION;
+        });
+        measure("getAllUnpreparedOperations", fleetSize, operationCount, (mainSystem, random, dataDirectory) -> {
+            for (int i = 0; i < 10; i++) {
+                sink += mainSystem.getAllUnpreparedOperations(24 * (1 + random.nextInt(30))).size();
+            }
+            return 10;
+        });
+        measure("JsonHandler save", fleetSize, operationCount, (mainSystem, random, dataDirectory) -> {
+            mainSystem.exportToJson();
+            return 1;
+        });
+        measure("JsonHandler load", fleetSize, operationCount, (mainSystem, random, dataDirectory) -> {
+            sink += new MainSystem(false, null, dataDirectory).getAllOperationsWithinTime(BASE,
+                    BASE.plusYears(1)).size();
+            return 1;
+        });
+    }
+
+    private static void measure(String name, int fleetSize, int operationCount, Scenario scenario)
+            throws IOException {
+        List<Long> nanosPerOperation = new ArrayList<>();
+        for (int iteration = 0; iteration < WARMUP_ITERATIONS + MEASURED_ITERATIONS; iteration++) {
+            File dataDirectory = Files.createTempDirectory("shachar-bench").toFile();
+            try {
+                Random random = new Random(SEED + iteration);
+                MainSystem mainSystem = populate(dataDirectory.getPath(), fleetSize, operationCount, random);
+                // The load scenario reads what the populated system exported
+                mainSystem.exportToJson();
+
+                long start = System.nanoTime();
+                int operations = scenario.run(mainSystem, random, dataDirectory.getPath());
+                long elapsed = System.nanoTime() - start;
+                if (iteration >= WARMUP_ITERATIONS) {
+                    nanosPerOperation.add(elapsed / operations);
+                }
+                mainSystem.close();
+            } finally {
+                deleteDirectory(dataDirectory);
+            }
+        }
+        long total = 0;
+        for (long nanos : nanosPerOperation) {
+            total += nanos;
+        }
+        System.out.printf("%-28s %8d %10d %14.1f%n", name, fleetSize, operationCount,
+                total / (double) nanosPerOperation.size() / 1000);
+    }
+
+    private static MainSystem populate(String dataDirectory, int fleetSize, int operationCount, Random random) {
+        MainSystem mainSystem = new MainSystem(true, null, dataDirectory);
+        for (int id = 0; id < fleetSize; id++) {
+            mainSystem.addAircraft(id);
+        }
+        for (int i = 0; i < operationCount; i++) {
+            mainSystem.addOperation(randomOperation("op" + i, random));
+        }
+        return mainSystem;
+    }
+
+    private static Operation randomOperation(String name, Random random) {
+        LocalDateTime start = randomStart(random);
+        LocalDateTime end = start.plusHours(1 + random.nextInt(6));
+        TaskInformation taskInformation = new TaskInformation(name, "benchmark", 1 + random.nextInt(4));
+        if (random.nextBoolean()) {
+            return new AttackOperation(taskInformation, "bench", new Point(random.nextDouble() * 100,
+                    random.nextDouble() * 100), start, end);
+        }
+        StringBuilder route = new StringBuilder();
+        double x = random.nextDouble() * 100;
+        double y = random.nextDouble() * 100;
+        for (int i = 0; i < 4; i++) {
+            route.append(i == 0 ? "" : " -> ").append(String.format(Locale.ROOT, "(%.1f,%.1f)", x, y));
+            x = Math.max(0, Math.min(100, x + random.nextGaussian() * 10));
+            y = Math.max(0, Math.min(100, y + random.nextGaussian() * 10));
+        }
+        return new IntelligenceGatheringOperation(taskInformation, "bench", route.toString(), start, end);
+    }
+
+    private static LocalDateTime randomStart(Random random) {
+        return BASE.plusMinutes(random.nextInt(365 * 24 * 60));
+    }
+
+    private static int[] parseSizes(String sizes) {
+        String[] parts = sizes.split(",");
+        int[] parsed = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Integer.parseInt(parts[i].trim());
+        }
+        return parsed;
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
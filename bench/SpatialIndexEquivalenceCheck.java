@@ -0,0 +1,234 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Checks RouteIndex and AttackLocationIndex against a full scan of the same operations.
+// Random churn inserts, removes and retimes operations (a retime removes, moves and
+// reinserts like MainSystem does), and after every step random box and radius queries
+// with random windows have to return exactly the operations the scan finds. Coordinates
+// are mostly whole numbers so box edges land on waypoints and locations, and some
+// query windows carry seconds so the exact time check is exercised.
+//
+// Usage: SpatialIndexEquivalenceCheck [steps] [queries per step], e.g. "5000 8"
+public class SpatialIndexEquivalenceCheck {
+    private static final long SEED = 42;
+    private static final int PLANNING_DAYS = 14;
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+    private static final int AREA = 1000;
+    private static final double CELL_SIZE = 10;
+
+    public static void main(String[] args) {
+        int steps = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int queriesPerStep = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        Random random = new Random(SEED);
+        RouteIndex routeIndex = new RouteIndex();
+        AttackLocationIndex attackIndex = new AttackLocationIndex(CELL_SIZE);
+        List<IntelligenceGatheringOperation> routes = new ArrayList<>();
+        List<AttackOperation> attacks = new ArrayList<>();
+        int mismatches = 0;
+        int queries = 0;
+        for (int step = 0; step < steps && mismatches < 20; step++) {
+            mismatches += churnRoutes(random, routeIndex, routes, step);
+            mismatches += churnAttacks(random, attackIndex, attacks, step);
+
+            int indexedRoutes = 0;
+            for (IntelligenceGatheringOperation operation : routes) {
+                if (!operation.getRoute().isEmpty()) {
+                    indexedRoutes++;
+                }
+            }
+            if (routeIndex.size() != indexedRoutes) {
+                mismatches++;
+                System.out.printf("step %d: the route index holds %d, %d routes are not empty%n", step,
+                        routeIndex.size(), indexedRoutes);
+            }
+            if (attackIndex.size() != attacks.size()) {
+                mismatches++;
+                System.out.printf("step %d: the attack index holds %d of %d%n", step, attackIndex.size(),
+                        attacks.size());
+            }
+
+            for (int q = 0; q < queriesPerStep; q++, queries++) {
+                LocalDateTime start = randomTime(random);
+                LocalDateTime end = start.plusMinutes(random.nextInt(3 * 24 * 60))
+                        .plusSeconds(random.nextInt(2) * 30);
+                double minX = coordinate(random) - AREA / 10;
+                double minY = coordinate(random) - AREA / 10;
+                double maxX = minX + random.nextInt(AREA / 2);
+                double maxY = minY + random.nextInt(AREA / 2);
+                double x = coordinate(random);
+                double y = coordinate(random);
+                double radius = random.nextInt(AREA / 4);
+
+                List<IntelligenceGatheringOperation> expectedRoutes = new ArrayList<>();
+                List<IntelligenceGatheringOperation> expectedNearRoutes = new ArrayList<>();
+                for (IntelligenceGatheringOperation operation : routes) {
+                    if (!overlaps(operation, start, end)) {
+                        continue;
+                    }
+                    if (operation.getRoute().intersects(minX, minY, maxX, maxY)) {
+                        expectedRoutes.add(operation);
+                    }
+                    if (operation.getRoute().distanceTo(x, y) <= radius) {
+                        expectedNearRoutes.add(operation);
+                    }
+                }
+                List<AttackOperation> expectedAttacks = new ArrayList<>();
+                List<AttackOperation> expectedNearAttacks = new ArrayList<>();
+                for (AttackOperation operation : attacks) {
+                    if (!overlaps(operation, start, end)) {
+                        continue;
+                    }
+                    Point location = operation.getAttackLocation();
+                    if (location.getX() >= minX && location.getX() <= maxX
+                            && location.getY() >= minY && location.getY() <= maxY) {
+                        expectedAttacks.add(operation);
+                    }
+                    double dx = location.getX() - x;
+                    double dy = location.getY() - y;
+                    if (dx * dx + dy * dy <= radius * radius) {
+                        expectedNearAttacks.add(operation);
+                    }
+                }
+
+                mismatches += compare(step, "route box", routeIndex.queryBounds(minX, minY, maxX, maxY, start, end),
+                        expectedRoutes);
+                mismatches += compare(step, "route radius", routeIndex.queryRadius(x, y, radius, start, end),
+                        expectedNearRoutes);
+                mismatches += compare(step, "attack box", attackIndex.queryBounds(minX, minY, maxX, maxY, start, end),
+                        expectedAttacks);
+                mismatches += compare(step, "attack radius", attackIndex.queryRadius(x, y, radius, start, end),
+                        expectedNearAttacks);
+            }
+        }
+        System.out.printf("%d steps, %d queries, %d routes and %d attacks left, %d mismatches%n", steps, queries,
+                routes.size(), attacks.size(), mismatches);
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Half the steps insert, a fifth remove and the rest retime, so the sets grow over the run.
+    // Returns 1 when a removal answered wrong
+    private static int churnRoutes(Random random, RouteIndex index, List<IntelligenceGatheringOperation> routes,
+                                   int step) {
+        int action = random.nextInt(10);
+        if (routes.isEmpty() || action < 5) {
+            LocalDateTime start = randomTime(random);
+            IntelligenceGatheringOperation operation = new IntelligenceGatheringOperation(
+                    new TaskInformation("route" + step, "check", 1), "check", randomRoute(random), start,
+                    start.plusHours(1 + random.nextInt(6)));
+            routes.add(operation);
+            index.insert(operation);
+        } else if (action < 7) {
+            IntelligenceGatheringOperation operation = routes.remove(random.nextInt(routes.size()));
+            boolean removed = index.remove(operation);
+            if (removed == operation.getRoute().isEmpty()) {
+                System.out.printf("step %d: removing %s returned %b%n", step, operation.getRoute(), removed);
+                return 1;
+            }
+        } else {
+            IntelligenceGatheringOperation operation = routes.get(random.nextInt(routes.size()));
+            index.remove(operation);
+            LocalDateTime start = randomTime(random);
+            operation.setStart(start);
+            operation.setEnd(start.plusHours(1 + random.nextInt(6)));
+            index.insert(operation);
+        }
+        return 0;
+    }
+
+    private static int churnAttacks(Random random, AttackLocationIndex index, List<AttackOperation> attacks,
+                                    int step) {
+        int action = random.nextInt(10);
+        if (attacks.isEmpty() || action < 5) {
+            LocalDateTime start = randomTime(random);
+            AttackOperation operation = new AttackOperation(new TaskInformation("attack" + step, "check", 1),
+                    "check", new Point(coordinate(random), coordinate(random)), start,
+                    start.plusHours(1 + random.nextInt(6)));
+            attacks.add(operation);
+            index.insert(operation);
+        } else if (action < 7) {
+            AttackOperation operation = attacks.remove(random.nextInt(attacks.size()));
+            if (!index.remove(operation)) {
+                System.out.printf("step %d: removing %s failed%n", step, operation.getTaskInformation()
+                        .getOperationName());
+                return 1;
+            }
+        } else {
+            AttackOperation operation = attacks.get(random.nextInt(attacks.size()));
+            index.remove(operation);
+            LocalDateTime start = randomTime(random);
+            operation.setStart(start);
+            operation.setEnd(start.plusHours(1 + random.nextInt(6)));
+            index.insert(operation);
+        }
+        return 0;
+    }
+
+    // One to five waypoints in either text form, a straight leg now and then, and a few
+    // routes that don't parse and so are never found
+    private static String randomRoute(Random random) {
+        if (random.nextInt(20) == 0) {
+            return "north ridge";
+        }
+        int waypoints = 1 + random.nextInt(5);
+        double x = coordinate(random);
+        double y = coordinate(random);
+        StringBuilder route = new StringBuilder();
+        for (int i = 0; i < waypoints; i++) {
+            if (i > 0) {
+                route.append(random.nextBoolean() ? " -> " : "; ");
+                if (random.nextInt(4) == 0) {
+                    x += random.nextInt(AREA / 5) - AREA / 10;
+                } else {
+                    x += random.nextInt(AREA / 5) - AREA / 10;
+                    y += random.nextInt(AREA / 5) - AREA / 10;
+                }
+            }
+            route.append(random.nextBoolean() ? "(" + x + "," + y + ")" : x + " " + y);
+        }
+        return route.toString();
+    }
+
+    // Mostly whole numbers, including negative ones
+    private static double coordinate(Random random) {
+        double coordinate = random.nextInt(AREA + AREA / 5) - AREA / 10;
+        return random.nextInt(4) == 0 ? coordinate + random.nextDouble() : coordinate;
+    }
+
+    private static LocalDateTime randomTime(Random random) {
+        return BASE.plusMinutes(random.nextInt(PLANNING_DAYS * 24 * 60));
+    }
+
+    private static boolean overlaps(Operation operation, LocalDateTime start, LocalDateTime end) {
+        return operation.getEnd().isAfter(start) && operation.getStart().isBefore(end);
+    }
+
+    private static <T extends Operation> int compare(int step, String query, List<T> found, List<T> expected) {
+        Set<T> foundSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        foundSet.addAll(found);
+        Set<T> expectedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        expectedSet.addAll(expected);
+        if (found.size() == foundSet.size() && foundSet.equals(expectedSet)) {
+            return 0;
+        }
+        System.out.printf("step %d: %s query found %s, the scan finds %s%n", step, query, names(found),
+                names(expected));
+        return 1;
+    }
+
+    private static List<String> names(List<? extends Operation> operations) {
+        List<String> names = new ArrayList<>();
+        for (Operation operation : operations) {
+            names.add(operation.getTaskInformation().getOperationName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Checks that cold start from the JSON files scales with the number of records and not
+// with aircraft x operations: the time per operation at the largest size has to stay
+// within MAX_GROWTH of the time per operation at the smallest size. Every size is
+// written into a temp directory by an import, then loaded REPETITIONS times.
+//
+// Usage: StartupScalingCheck [operation counts] [fleet size], e.g. "12500,25000,50000,100000 100"
+public class StartupScalingCheck {
+    private static final long SEED = 42;
+    private static final int PLANNING_DAYS = 365;
+    private static final int REPETITIONS = 3;
+    private static final double MAX_GROWTH = 2.0;
+    private static final LocalDateTime BASE = LocalDateTime.now().plusDays(1).withSecond(0).withNano(0);
+
+    public static void main(String[] args) throws IOException {
+        int[] operationCounts = parseSizes(args.length > 0 ? args[0] : "12500,25000,50000,100000");
+        int fleetSize = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        // Warms up the JIT so the first size is not measured on interpreted code
+        measure(operationCounts[0], fleetSize);
+
+        System.out.printf("%10s %8s %12s %16s%n", "operations", "fleet", "startup ms", "us per operation");
+        double firstPerOperation = 0;
+        double lastPerOperation = 0;
+        for (int i = 0; i < operationCounts.length; i++) {
+            double millis = measure(operationCounts[i], fleetSize);
+            double perOperation = millis * 1000 / operationCounts[i];
+            System.out.printf("%10d %8d %12.1f %16.2f%n", operationCounts[i], fleetSize, millis, perOperation);
+            if (i == 0) {
+                firstPerOperation = perOperation;
+            }
+            lastPerOperation = perOperation;
+        }
+        double growth = lastPerOperation / firstPerOperation;
+        System.out.printf("time per operation grew %.2fx (limit %.1fx)%n", growth, MAX_GROWTH);
+        if (growth > MAX_GROWTH) {
+            System.exit(1);
+        }
+    }
+
+    // Best startup time in milliseconds, the best run is the least disturbed by GC and the OS
+    private static double measure(int operationCount, int fleetSize) throws IOException {
+        File dataDirectory = Files.createTempDirectory("shachar-startup").toFile();
+        try {
+            populate(dataDirectory.getPath(), operationCount, fleetSize);
+            long best = Long.MAX_VALUE;
+            for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+                long start = System.nanoTime();
+                MainSystem mainSystem = new MainSystem(false, null, dataDirectory.getPath());
+                best = Math.min(best, System.nanoTime() - start);
+                mainSystem.close();
+            }
+            return best / 1e6;
+        } finally {
+            deleteDirectory(dataDirectory);
+        }
+    }
+
+    private static void populate(String dataDirectory, int operationCount, int fleetSize) {
+        Random random = new Random(SEED);
+        List<Integer> aircraftIds = new ArrayList<>(fleetSize);
+        for (int id = 0; id < fleetSize; id++) {
+            aircraftIds.add(id);
+        }
+        List<Operation> operations = new ArrayList<>(operationCount);
+        for (int i = 0; i < operationCount; i++) {
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(PLANNING_DAYS * 24 * 60));
+            TaskInformation taskInformation = new TaskInformation("op" + i, "startup", 1 + random.nextInt(4));
+            operations.add(new AttackOperation(taskInformation, "startup", new Point(random.nextInt(100),
+                    random.nextInt(100)), start, start.plusHours(1 + random.nextInt(6))));
+        }
+        MainSystem mainSystem = new MainSystem(false, null, dataDirectory);
+        mainSystem.importBatch(aircraftIds, operations, List.of());
+        mainSystem.close();
+    }
+
+    private static int[] parseSizes(String sizes) {
+        String[] parts = sizes.split(",");
+        int[] parsed = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Integer.parseInt(parts[i].trim());
+        }
+        return parsed;
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
@@ -1,13 +1,19 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Aircraft {
+    private static final LongAdder OVERLAP_CHECKS = Metrics.counter("aircraft.overlapChecks");
+
     private final int id;
-    private final List<Operation> assignedOperations;
+    private final LinkedHashMap<String, Operation> assignedOperations;
+    private final AircraftSchedule schedule;
 
     public Aircraft(int id) {
         this.id = id;
-        this.assignedOperations = new ArrayList<>();
+        this.assignedOperations = new LinkedHashMap<>();
+        this.schedule = new AircraftSchedule();
     }
 
     public int getId() {
@@ -15,28 +21,36 @@ public class Aircraft {
     }
 
     public boolean isAssignedToOperation(String operationName) {
-        for (Operation op : assignedOperations) {
-            if (op.getTaskInformation().getOperationName().equals(operationName)) {
-                return true;
-            }
-        }
-        return false;
+        return this.assignedOperations.containsKey(operationName);
     }
 
     public void clearOperations() {
         this.assignedOperations.clear();
+        this.schedule.clear();
     }
 
     public void addOperationToList(Operation operation) {
-        this.assignedOperations.add(operation);
+        this.assignedOperations.put(operation.getTaskInformation().getOperationName(), operation);
+        this.schedule.add(operation);
     }
 
-    public boolean operationAssignmentOverlaps(Operation operation) {
-        for (Operation op : this.assignedOperations) {
-            if (!op.canAssignWithTime(operation)) {
-                return true;
-            }
+    public void removeOperation(Operation operation) {
+        if (this.assignedOperations.remove(operation.getTaskInformation().getOperationName()) != null) {
+            this.schedule.remove(operation);
         }
-        return false;
+    }
+
+    public boolean operationAssignmentOverlaps(Operation operation) {
+        OVERLAP_CHECKS.increment();
+        return this.schedule.overlaps(operation);
+    }
+
+    // End of the last blocked period starting at or before the minute, Long.MIN_VALUE when idle until then
+    public long busyUntilBefore(long minute) {
+        return this.schedule.busyUntilBefore(minute);
+    }
+
+    public LocalDateTime nextFreeSlot(LocalDateTime from, Duration length) {
+        return this.schedule.nextFreeSlot(from, length);
     }
 }
@@ -0,0 +1,115 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Open addressing map from aircraft id to aircraft. Ids are kept as plain ints,
+// a slot is empty while its value is null
+public class AircraftDirectory implements Iterable<Aircraft> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys;
+    private Aircraft[] values;
+    private int size;
+
+    // Insertion list of ids, sorted lazily the first time someone iterates after an insert
+    private int[] ids;
+    private boolean idsSorted;
+
+    public AircraftDirectory() {
+        this.keys = new int[INITIAL_CAPACITY];
+        this.values = new Aircraft[INITIAL_CAPACITY];
+        this.ids = new int[INITIAL_CAPACITY];
+        this.idsSorted = true;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    public Aircraft get(int id) {
+        int mask = this.keys.length - 1;
+        for (int i = mix(id) & mask; this.values[i] != null; i = (i + 1) & mask) {
+            if (this.keys[i] == id) {
+                return this.values[i];
+            }
+        }
+        return null;
+    }
+
+    public boolean add(Aircraft aircraft) {
+        if ((this.size + 1) * 2 > this.keys.length) {
+            resize(this.keys.length * 2);
+        }
+        int id = aircraft.getId();
+        int mask = this.keys.length - 1;
+        int i = mix(id) & mask;
+        while (this.values[i] != null) {
+            if (this.keys[i] == id) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        this.keys[i] = id;
+        this.values[i] = aircraft;
+
+        if (this.size == this.ids.length) {
+            this.ids = Arrays.copyOf(this.ids, this.ids.length * 2);
+        }
+        if (this.size > 0 && this.ids[this.size - 1] > id) {
+            this.idsSorted = false;
+        }
+        this.ids[this.size] = id;
+        this.size++;
+        return true;
+    }
+
+    public Iterator<Aircraft> iterator() {
+        if (!this.idsSorted) {
+            Arrays.sort(this.ids, 0, this.size);
+            this.idsSorted = true;
+        }
+        return new Iterator<>() {
+            private int next = 0;
+
+            public boolean hasNext() {
+                return this.next < size;
+            }
+
+            public Aircraft next() {
+                if (this.next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(ids[this.next++]);
+            }
+        };
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = this.keys;
+        Aircraft[] oldValues = this.values;
+        this.keys = new int[capacity];
+        this.values = new Aircraft[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null) {
+                continue;
+            }
+            int i = mix(oldKeys[j]) & mask;
+            while (this.values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = oldKeys[j];
+            this.values[i] = oldValues[j];
+        }
+    }
+
+    // Spreads sequential ids over the table so linear probing does not cluster
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
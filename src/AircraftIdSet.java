@@ -0,0 +1,87 @@
+import org.json.JSONString;
+
+import java.util.Arrays;
+
+// Set of aircraft ids kept as a sorted int array. Crews are small and their size is
+// known up front, so the array is sized once and lookups are a binary search
+public class AircraftIdSet implements JSONString {
+    private int[] ids;
+    private int size;
+
+    public AircraftIdSet(int expectedSize) {
+        this.ids = new int[Math.max(expectedSize, 1)];
+    }
+
+    public AircraftIdSet copy() {
+        AircraftIdSet copy = new AircraftIdSet(this.size);
+        System.arraycopy(this.ids, 0, copy.ids, 0, this.size);
+        copy.size = this.size;
+        return copy;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    // Ids in ascending order, index must be below size()
+    public int get(int index) {
+        return this.ids[index];
+    }
+
+    public boolean contains(int id) {
+        return Arrays.binarySearch(this.ids, 0, this.size, id) >= 0;
+    }
+
+    public boolean add(int id) {
+        int index = Arrays.binarySearch(this.ids, 0, this.size, id);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        if (this.size == this.ids.length) {
+            this.ids = Arrays.copyOf(this.ids, this.size * 2);
+        }
+        System.arraycopy(this.ids, index, this.ids, index + 1, this.size - index);
+        this.ids[index] = id;
+        this.size++;
+        return true;
+    }
+
+    public boolean remove(int id) {
+        int index = Arrays.binarySearch(this.ids, 0, this.size, id);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(this.ids, index + 1, this.ids, index, this.size - index - 1);
+        this.size--;
+        return true;
+    }
+
+    public void clear() {
+        this.size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(this.ids, this.size);
+    }
+
+    // Lets JSONObject write the set as a JSON array without boxing every id
+    public String toJSONString() {
+        StringBuilder json = new StringBuilder(2 + this.size * 4).append('[');
+        for (int i = 0; i < this.size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(this.ids[i]);
+        }
+        return json.append(']').toString();
+    }
+
+    public String toString() {
+        return toJSONString();
+    }
+}
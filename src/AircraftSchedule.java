@@ -0,0 +1,114 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+// Operations of a single aircraft sorted by start time. Each entry is stored as
+// the minutes the aircraft is blocked for, including the turnaround buffer on
+// both sides, so neighbouring entries can overlap by up to the turnaround. The
+// operations themselves never overlap, so blockedUntil grows with blockedFrom and
+// the latest entry starting before a window ends the latest of all of them: it is
+// the only one that has to be checked for a collision
+public class AircraftSchedule {
+    public static final int TURNAROUND_MINUTES = 60;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] blockedFrom;
+    private long[] blockedUntil;
+    private Operation[] operations;
+    private int size;
+
+    public AircraftSchedule() {
+        this.blockedFrom = new long[INITIAL_CAPACITY];
+        this.blockedUntil = new long[INITIAL_CAPACITY];
+        this.operations = new Operation[INITIAL_CAPACITY];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean overlaps(Operation operation) {
+        return overlaps(operation.getStartMinute(), operation.getEndMinute());
+    }
+
+    public boolean overlaps(long start, long end) {
+        int i = lastBlockedFromAtOrBefore(end);
+        return i >= 0 && this.blockedUntil[i] >= start;
+    }
+
+    // Callers check overlaps first, adding an overlapping operation breaks the ordering
+    public void add(Operation operation) {
+        if (this.size == this.operations.length) {
+            int capacity = this.size * 2;
+            this.blockedFrom = Arrays.copyOf(this.blockedFrom, capacity);
+            this.blockedUntil = Arrays.copyOf(this.blockedUntil, capacity);
+            this.operations = Arrays.copyOf(this.operations, capacity);
+        }
+        long from = operation.getStartMinute() - TURNAROUND_MINUTES;
+        long until = operation.getEndMinute() + TURNAROUND_MINUTES;
+        int i = lastBlockedFromAtOrBefore(from) + 1;
+        System.arraycopy(this.blockedFrom, i, this.blockedFrom, i + 1, this.size - i);
+        System.arraycopy(this.blockedUntil, i, this.blockedUntil, i + 1, this.size - i);
+        System.arraycopy(this.operations, i, this.operations, i + 1, this.size - i);
+        this.blockedFrom[i] = from;
+        this.blockedUntil[i] = until;
+        this.operations[i] = operation;
+        this.size++;
+    }
+
+    // Looks the operation up by identity, so it still works after the operation was retimed
+    public boolean remove(Operation operation) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.operations[i] == operation) {
+                int moved = this.size - i - 1;
+                System.arraycopy(this.blockedFrom, i + 1, this.blockedFrom, i, moved);
+                System.arraycopy(this.blockedUntil, i + 1, this.blockedUntil, i, moved);
+                System.arraycopy(this.operations, i + 1, this.operations, i, moved);
+                this.size--;
+                this.operations[this.size] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        Arrays.fill(this.operations, 0, this.size, null);
+        this.size = 0;
+    }
+
+    // Earliest start at or after from where an operation of the given length fits
+    public LocalDateTime nextFreeSlot(LocalDateTime from, Duration length) {
+        long start = Utils.toEpochMinute(from);
+        long minutes = length.toMinutes();
+        int i = lastBlockedFromAtOrBefore(start + minutes);
+        if (i < 0 || this.blockedUntil[i] < start) {
+            return from;
+        }
+        start = this.blockedUntil[i] + 1;
+        while (i + 1 < this.size && this.blockedFrom[i + 1] <= start + minutes) {
+            i++;
+            start = this.blockedUntil[i] + 1;
+        }
+        return Utils.fromEpochMinute(start);
+    }
+
+    public long busyUntilBefore(long minute) {
+        int i = lastBlockedFromAtOrBefore(minute);
+        return i < 0 ? Long.MIN_VALUE : this.blockedUntil[i];
+    }
+
+    private int lastBlockedFromAtOrBefore(long minute) {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (this.blockedFrom[mid] <= minute) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+}
@@ -0,0 +1,360 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// JSON over HTTP for tools other than the console. Requests run on the executor the server
+// is given, a pool of WORKER_THREADS by default, and call MainSystem directly, whose locks
+// already make it safe to call concurrently. Bodies use the field names of the data files,
+// dates are yyyy-MM-dd HH:mm.
+//
+//   POST /aircraft                          {"id": 7}
+//   POST /operations                        operation as in operation.json, without assignedAircrafts
+//   GET  /operations?start=..&end=..        operations overlapping the window
+//   GET  /operations/unprepared?hours=..    operations starting within the hours that are not ready
+//   GET  /operations/{name}                 the operation and its readiness
+//   PUT  /operations/{name}/time            {"start": .., "end": ..}
+//   POST /operations/{name}/aircraft        {"id": 7}, assigns the aircraft when it is free
+//   POST /drawer-operations                 drawer operation as in drawerOperation.json
+//   POST /drawer-operations/{name}/convert  {"start": .., "end": ..} plus the operation details
+//                                           (none for an intelligence drawer operation)
+//   GET  /metrics                           text dump of Metrics
+//
+// Errors come back as {"error": ..} with 400, 404, 405, 409 or 500
+public class ApiServer {
+    // Connections waiting to be accepted, enough for a burst of a few thousand clients
+    private static final int BACKLOG = 4096;
+    // Requests are short and mostly wait on the MainSystem locks, a fixed pool keeps up with bursts
+    private static final int WORKER_THREADS = 64;
+    // Without TCP_NODELAY the separately written headers and body wait out delayed acks, about
+    // 40ms per response. The JDK reads it once when the first server is created, see Main
+    public static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final MainSystem mainSystem;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private static class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        private ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static class Reply {
+        private final int status;
+        private final Object body;
+        private final String contentType;
+
+        private Reply(int status, Object body) {
+            this(status, body, "application/json; charset=utf-8");
+        }
+
+        private Reply(int status, Object body, String contentType) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+        }
+    }
+
+    private interface Route {
+        Reply handle(HttpExchange exchange, String[] path) throws IOException;
+    }
+
+    public ApiServer(MainSystem mainSystem, InetSocketAddress address) throws IOException {
+        this(mainSystem, address, newWorkerPool());
+    }
+
+    // The server owns the executor and shuts it down in stop()
+    public ApiServer(MainSystem mainSystem, InetSocketAddress address, ExecutorService executor) throws IOException {
+        this.mainSystem = mainSystem;
+        this.server = HttpServer.create(address, BACKLOG);
+        this.executor = executor;
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/aircraft", exchange -> serve(exchange, this::handleAircraft));
+        this.server.createContext("/operations", exchange -> serve(exchange, this::handleOperations));
+        this.server.createContext("/drawer-operations", exchange -> serve(exchange, this::handleDrawerOperations));
+        this.server.createContext("/metrics", exchange -> serve(exchange, this::handleMetrics));
+    }
+
+    // Only reachable from this machine, port 0 picks a free port
+    public static ApiServer onLocalhost(MainSystem mainSystem, int port) throws IOException {
+        return new ApiServer(mainSystem, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    private static ExecutorService newWorkerPool() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(WORKER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "api-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    // Gives running requests up to a second to finish
+    public void stop() {
+        this.server.stop(1);
+        this.executor.shutdown();
+    }
+
+    private void serve(HttpExchange exchange, Route route) throws IOException {
+        Reply reply;
+        try {
+            String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+            for (int i = 0; i < path.length; i++) {
+                path[i] = URLDecoder.decode(path[i], StandardCharsets.UTF_8);
+            }
+            reply = route.handle(exchange, path);
+        } catch (ApiException e) {
+            reply = error(e.status, e.getMessage());
+        } catch (JSONException | DateTimeParseException | IllegalArgumentException e) {
+            reply = error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            reply = error(500, "Internal error");
+        }
+        byte[] body = reply.body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", reply.contentType);
+        exchange.sendResponseHeaders(reply.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private Reply handleAircraft(HttpExchange exchange, String[] path) throws IOException {
+        requireMethod(exchange, "POST");
+        if (path.length != 1) {
+            throw new ApiException(404, "Not found");
+        }
+        int id = readBody(exchange).getInt("id");
+        if (!this.mainSystem.addAircraft(id)) {
+            throw new ApiException(409, "Aircraft ID already exists");
+        }
+        return new Reply(201, new JSONObject().put("id", id));
+    }
+
+    private Reply handleOperations(HttpExchange exchange, String[] path) throws IOException {
+        if (path.length == 1 && exchange.getRequestMethod().equals("POST")) {
+            return addOperation(readBody(exchange));
+        }
+        if (path.length == 1) {
+            requireMethod(exchange, "GET");
+            Map<String, String> query = readQuery(exchange);
+            LocalDateTime[] dates = parseDates(required(query, "start"), required(query, "end"), false);
+            return new Reply(200, operationsToJson(this.mainSystem.getAllOperationsWithinTime(dates[0], dates[1])));
+        }
+        if (path.length == 2 && path[1].equals("unprepared")) {
+            requireMethod(exchange, "GET");
+            int hours = Integer.parseInt(required(readQuery(exchange), "hours"));
+            if (hours <= 0) {
+                throw new ApiException(400, "Invalid number of hours");
+            }
+            return new Reply(200, operationsToJson(this.mainSystem.getAllUnpreparedOperations(hours)));
+        }
+        Operation op = path.length <= 3 ? this.mainSystem.getOperationByName(path[1]) : null;
+        if (op == null || (path.length == 3 && !path[2].equals("time") && !path[2].equals("aircraft"))) {
+            throw new ApiException(404, "Operation does not exists");
+        }
+        if (path.length == 2) {
+            requireMethod(exchange, "GET");
+            return new Reply(200, operationToJson(op));
+        }
+        if (path[2].equals("aircraft")) {
+            requireMethod(exchange, "POST");
+            int id = readBody(exchange).getInt("id");
+            if (!this.mainSystem.hasAircraftId(id)) {
+                throw new ApiException(404, "Aircraft ID does not exists");
+            }
+            if (!this.mainSystem.assignAircraftToOperation(id, path[1])) {
+                throw new ApiException(409, "Cannot assign the aircraft to the operation");
+            }
+            return new Reply(200, operationToJson(op));
+        }
+        requireMethod(exchange, "PUT");
+        JSONObject body = readBody(exchange);
+        LocalDateTime[] dates = parseDates(body.getString("start"), body.getString("end"), true);
+        this.mainSystem.changeOperationTime(op, dates[0], dates[1]);
+        return new Reply(200, operationToJson(op));
+    }
+
+    private Reply handleDrawerOperations(HttpExchange exchange, String[] path) throws IOException {
+        requireMethod(exchange, "POST");
+        if (path.length == 1) {
+            return addDrawerOperation(readBody(exchange));
+        }
+        if (path.length != 3 || !path[2].equals("convert")) {
+            throw new ApiException(404, "Not found");
+        }
+        return convertDrawerOperation(path[1], readBody(exchange));
+    }
+
+    private Reply handleMetrics(HttpExchange exchange, String[] path) {
+        requireMethod(exchange, "GET");
+        return new Reply(200, Metrics.getInstance().dump(), "text/plain; charset=utf-8");
+    }
+
+    private Reply addOperation(JSONObject body) {
+        TaskInformation taskInformation = readTaskInformation(body);
+        LocalDateTime[] dates = parseDates(body.getString("start"), body.getString("end"), true);
+        Operation op;
+        if (body.has("cameraType")) {
+            op = new IntelligenceGatheringOperation(taskInformation, body.getString("cameraType"),
+                    body.getString("flightRoute"), dates[0], dates[1]);
+        } else {
+            op = new AttackOperation(taskInformation, body.getString("armamentType"),
+                    new Point(body.getDouble("x"), body.getDouble("y")), dates[0], dates[1]);
+        }
+        if (!this.mainSystem.addOperation(op)) {
+            throw new ApiException(409, "Operation name already exists");
+        }
+        return new Reply(201, operationToJson(op));
+    }
+
+    private Reply addDrawerOperation(JSONObject body) {
+        TaskInformation taskInformation = readTaskInformation(body);
+        boolean added;
+        if (body.has("cameraType")) {
+            added = this.mainSystem.addIntelligenceDrawerOperation(taskInformation, body.getString("cameraType"),
+                    body.getString("flightRoute"));
+        } else {
+            added = this.mainSystem.addDrawerOperation(taskInformation.getOperationName(),
+                    taskInformation.getTaskDescription(), taskInformation.getNumOfAircrafts());
+        }
+        if (!added) {
+            throw new ApiException(409, "Operation name already exists");
+        }
+        return new Reply(201, body);
+    }
+
+    private Reply convertDrawerOperation(String operationName, JSONObject body) {
+        DrawerOperation drawerOperation = this.mainSystem.getDrawerOperationByName(operationName);
+        if (drawerOperation == null) {
+            throw new ApiException(404, "Drawer operation name does not exists");
+        }
+        LocalDateTime[] dates = parseDates(body.getString("start"), body.getString("end"), true);
+        boolean created;
+        if (drawerOperation instanceof IntelligenceDrawerOperation) {
+            IntelligenceDrawerOperation intelligenceDrawerOperation = (IntelligenceDrawerOperation) drawerOperation;
+            created = this.mainSystem.createIntelligenceGatheringOperation(operationName, dates[0], dates[1],
+                    intelligenceDrawerOperation.getCameraType(), intelligenceDrawerOperation.getFlightRoute());
+        } else if (body.has("cameraType")) {
+            created = this.mainSystem.createIntelligenceGatheringOperation(operationName, dates[0], dates[1],
+                    body.getString("cameraType"), body.getString("flightRoute"));
+        } else {
+            created = this.mainSystem.createAttackOperation(operationName, dates[0], dates[1],
+                    body.getString("armamentType"), new Point(body.getDouble("x"), body.getDouble("y")));
+        }
+        // Another request converted it first
+        if (!created) {
+            throw new ApiException(409, "Cannot create operation");
+        }
+        return new Reply(201, operationToJson(this.mainSystem.getOperationByName(operationName)));
+    }
+
+    private JSONObject operationToJson(Operation op) {
+        Operation copy = this.mainSystem.getOperationCopy(op);
+        ReadinessStatus status = copy.getReadinessStatus();
+        return Utils.operationToJson(copy).put("ready", status.isReady());
+    }
+
+    private JSONArray operationsToJson(List<Operation> operations) {
+        JSONArray json = new JSONArray();
+        for (Operation op : operations) {
+            json.put(operationToJson(op));
+        }
+        return json;
+    }
+
+    private static TaskInformation readTaskInformation(JSONObject body) {
+        int numOfAircrafts = body.getInt("numOfAircrafts");
+        if (numOfAircrafts <= 0) {
+            throw new ApiException(400, "Invalid number of required aircrafts");
+        }
+        return new TaskInformation(body.getString("operationName"), body.getString("taskDescription"),
+                numOfAircrafts);
+    }
+
+    // Same checks as the console
+    private static LocalDateTime[] parseDates(String startString, String endString, boolean isForOperation) {
+        LocalDateTime start = LocalDateTime.parse(startString, Utils.DATE_TIME_FORMATTER);
+        LocalDateTime end = LocalDateTime.parse(endString, Utils.DATE_TIME_FORMATTER);
+        if (!start.isBefore(end)) {
+            throw new ApiException(400, "Invalid end date - start should be before end");
+        }
+        if (isForOperation && start.isBefore(LocalDateTime.now())) {
+            throw new ApiException(400, "Invalid date - can only be in future");
+        }
+        return new LocalDateTime[] {start, end};
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    private static JSONObject readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new JSONObject(new JSONTokener(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static Map<String, String> readQuery(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new ApiException(400, "Missing query parameter " + name);
+        }
+        return value;
+    }
+
+    private static Reply error(int status, String message) {
+        return new Reply(status, new JSONObject().put("error", message));
+    }
+}
@@ -0,0 +1,13 @@
+import java.util.List;
+
+// Strategy for filling operation crews from the fleet. Engines read the current crews and
+// aircraft schedules, but add assignments only through the target, which checks the
+// capacity, readiness and overlap rules and persists what it accepts
+public interface AssignmentEngine {
+    interface Target {
+        boolean assign(Aircraft aircraft, Operation operation);
+    }
+
+    // Aircraft come in id order, operations in the order they were added to the system
+    void assign(List<Aircraft> aircrafts, List<Operation> operations, Target target);
+}
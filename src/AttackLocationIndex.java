@@ -0,0 +1,118 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Uniform grid over attack locations. Every occupied cell keeps its operations in an
+// OperationIntervalTree, so a query only visits the cells its area touches and inside
+// them only the operations overlapping its time window
+public class AttackLocationIndex {
+    private final double cellSize;
+    private final HashMap<Long, OperationIntervalTree> cells;
+    private int size;
+
+    public AttackLocationIndex(double cellSize) {
+        this.cellSize = cellSize;
+        this.cells = new HashMap<>();
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void insert(AttackOperation operation) {
+        Point location = operation.getAttackLocation();
+        this.cells.computeIfAbsent(cellKey(cell(location.getX()), cell(location.getY())),
+                key -> new OperationIntervalTree()).insert(operation);
+        this.size++;
+    }
+
+    // Must be called while the operation still has the times it was inserted with
+    public boolean remove(AttackOperation operation) {
+        Point location = operation.getAttackLocation();
+        long key = cellKey(cell(location.getX()), cell(location.getY()));
+        OperationIntervalTree cell = this.cells.get(key);
+        if (cell == null || !cell.remove(operation)) {
+            return false;
+        }
+        if (cell.size() == 0) {
+            this.cells.remove(key);
+        }
+        this.size--;
+        return true;
+    }
+
+    // Operations inside the box (edges included) that overlap the open window (start, end)
+    public List<AttackOperation> queryBounds(double minX, double minY, double maxX, double maxY,
+                                             LocalDateTime start, LocalDateTime end) {
+        List<AttackOperation> result = new ArrayList<>();
+        for (OperationIntervalTree cell : cellsTouching(minX, minY, maxX, maxY)) {
+            for (Operation operation : cell.query(start, end)) {
+                Point location = ((AttackOperation) operation).getAttackLocation();
+                if (location.getX() >= minX && location.getX() <= maxX
+                        && location.getY() >= minY && location.getY() <= maxY) {
+                    result.add((AttackOperation) operation);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Operations at most radius away from (x, y) that overlap the open window (start, end)
+    public List<AttackOperation> queryRadius(double x, double y, double radius,
+                                             LocalDateTime start, LocalDateTime end) {
+        List<AttackOperation> result = new ArrayList<>();
+        double radiusSquared = radius * radius;
+        for (AttackOperation operation : queryBounds(x - radius, y - radius, x + radius, y + radius, start, end)) {
+            double dx = operation.getAttackLocation().getX() - x;
+            double dy = operation.getAttackLocation().getY() - y;
+            if (dx * dx + dy * dy <= radiusSquared) {
+                result.add(operation);
+            }
+        }
+        return result;
+    }
+
+    // A box spanning more cells than are occupied is cheaper to answer from the occupied ones
+    private List<OperationIntervalTree> cellsTouching(double minX, double minY, double maxX, double maxY) {
+        List<OperationIntervalTree> touching = new ArrayList<>();
+        if (minX > maxX || minY > maxY) {
+            return touching;
+        }
+        long fromX = cell(minX);
+        long toX = cell(maxX);
+        long fromY = cell(minY);
+        long toY = cell(maxY);
+        double spanned = (double) (toX - fromX + 1) * (toY - fromY + 1);
+        if (spanned > this.cells.size()) {
+            for (Map.Entry<Long, OperationIntervalTree> entry : this.cells.entrySet()) {
+                long cellX = entry.getKey() >> 32;
+                long cellY = (int) (long) entry.getKey();
+                if (cellX >= fromX && cellX <= toX && cellY >= fromY && cellY <= toY) {
+                    touching.add(entry.getValue());
+                }
+            }
+            return touching;
+        }
+        for (long cellX = fromX; cellX <= toX; cellX++) {
+            for (long cellY = fromY; cellY <= toY; cellY++) {
+                OperationIntervalTree cell = this.cells.get(cellKey(cellX, cellY));
+                if (cell != null) {
+                    touching.add(cell);
+                }
+            }
+        }
+        return touching;
+    }
+
+    // Cell coordinates are clamped to int so a cell packs into one long key
+    private long cell(double coordinate) {
+        double cell = Math.floor(coordinate / this.cellSize);
+        return (long) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, cell));
+    }
+
+    private static long cellKey(long cellX, long cellY) {
+        return cellX << 32 | (cellY & 0xFFFFFFFFL);
+    }
+}
@@ -11,6 +11,14 @@ public class AttackOperation extends Operation {
         this.attackLocation = attackLocation;
     }
 
+    public AttackOperation copy() {
+        AttackOperation copy = new AttackOperation(this.taskInformation, this.armamentType, this.attackLocation,
+                this.start, this.end);
+        copy.assignedAircrafts = this.assignedAircrafts.copy();
+        copy.clock = this.clock;
+        return copy;
+    }
+
     public String getArmamentType() {
         return this.armamentType;
     }
@@ -19,13 +27,12 @@ public class AttackOperation extends Operation {
         return this.attackLocation;
     }
 
-    public boolean isOperationReady() {
-        if (LocalDateTime.now().isAfter(this.start)) {
-            return false;
-        }
-        boolean hasRequiredAircraftCount = taskInformation.getNumOfAircrafts() == assignedAircrafts.size();
-        boolean isInTime = LocalDateTime.now().isAfter(this.start.minusHours(10));
-        return hasRequiredAircraftCount && isInTime;
+    public int getReadinessWindowHours() {
+        return 10;
+    }
+
+    public boolean hasReadyCrew(int crewSize) {
+        return taskInformation.getNumOfAircrafts() == crewSize;
     }
 
     public boolean cannotAssignAircraftToOperation(Aircraft aircraft) {
@@ -0,0 +1,203 @@
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+// Runs menu commands from a file or stdin through the same handlers as the interactive
+// menu, without prompts, e.g. for load tests or to replay a recorded session against a
+// new build. Every line is one command, either the menu choice (or command name)
+// followed by the answers to its prompts, separated by '|':
+//   2|op1|Strike|2|2031-01-01 10:00|2031-01-01 12:00|2|missile|10|20
+// or a JSON object with the answers by name:
+//   {"command":"addOperation","name":"op1","description":"Strike","aircrafts":2,
+//    "start":"2031-01-01 10:00","end":"2031-01-01 12:00","type":"attack",
+//    "armamentType":"missile","x":10,"y":20}
+// Blank lines and lines starting with '#' are skipped. Command output goes to stdout
+// as in the interactive mode, the latency report and the Metrics dump go to stderr so
+// outputs of two builds can be diffed. The commands change a scratch copy of the live
+// data unless "--data-dir dir" names the directory to change, see Main
+public class BatchRunner {
+    private static final String[] COMMAND_NAMES = {"invalid", "addAircraft", "addOperation",
+            "getOperationsWithinTime", "checkOperationReady", "changeOperationTime", "addDrawerOperation",
+            "addIntelligenceDrawerOperation", "createFromDrawerOperation", "getUnpreparedOperations", "exit"};
+    // JSON fields in the order the handler of each menu choice prompts for them
+    private static final String[][] COMMAND_FIELDS = {{}, {"id"},
+            {"name", "description", "aircrafts", "start", "end", "type"}, {"start", "end"}, {"name"},
+            {"name", "start", "end"}, {"name", "description", "aircrafts"},
+            {"name", "description", "aircrafts", "cameraType", "flightRoute"}, {"name", "start", "end", "type"},
+            {"hours"}, {}};
+    private static final String[] INTELLIGENCE_FIELDS = {"cameraType", "flightRoute"};
+    private static final String[] ATTACK_FIELDS = {"armamentType", "x", "y"};
+    private static final int INVALID = 0;
+
+    private static class Latencies {
+        private long[] nanos = new long[16];
+        private int count;
+
+        private void add(long elapsed) {
+            if (this.count == this.nanos.length) {
+                this.nanos = Arrays.copyOf(this.nanos, this.count * 2);
+            }
+            this.nanos[this.count++] = elapsed;
+        }
+    }
+
+    // source is a file path, or "-" for stdin
+    public static void run(String source) throws IOException {
+        BufferedReader reader = source.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8);
+        Latencies[] latencies = new Latencies[COMMAND_NAMES.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new Latencies();
+        }
+
+        // Flushing stdout on every printed line would dominate the latencies
+        PrintStream console = System.out;
+        PrintStream buffered = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out),
+                1 << 16), false, StandardCharsets.UTF_8);
+        MenuInput consoleInput = Main.menuInput;
+        System.setOut(buffered);
+        long started = System.nanoTime();
+        try (reader) {
+            String line;
+            int lineNumber = 0;
+            boolean more = true;
+            while (more && (line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                List<String> answers = parse(line);
+                int choice = answers == null ? INVALID : Integer.parseInt(answers.get(0));
+                if (choice == INVALID) {
+                    System.out.println("Invalid command at line " + lineNumber);
+                } else {
+                    Iterator<String> iterator = answers.iterator();
+                    Main.menuInput = prompt -> iterator.hasNext() ? iterator.next() : "";
+                    more = Main.handleMenuChooser();
+                }
+                latencies[choice].add(System.nanoTime() - start);
+            }
+        } finally {
+            long elapsed = System.nanoTime() - started;
+            Main.menuInput = consoleInput;
+            buffered.flush();
+            System.setOut(console);
+            report(latencies, elapsed);
+        }
+    }
+
+    // The menu choice followed by the answers, or null when the line is not a known command
+    private static List<String> parse(String line) {
+        if (line.startsWith("{")) {
+            return parseJson(line);
+        }
+        String[] parts = line.split("\\|", -1);
+        int choice = commandChoice(parts[0].trim());
+        if (choice == INVALID) {
+            return null;
+        }
+        List<String> answers = new ArrayList<>(parts.length);
+        answers.add(String.valueOf(choice));
+        for (int i = 1; i < parts.length; i++) {
+            answers.add(parts[i].trim());
+        }
+        return answers;
+    }
+
+    private static List<String> parseJson(String line) {
+        JSONObject command;
+        try {
+            command = new JSONObject(line);
+        } catch (JSONException e) {
+            return null;
+        }
+        int choice = commandChoice(command.optString("command"));
+        if (choice == INVALID) {
+            return null;
+        }
+        List<String> answers = new ArrayList<>();
+        answers.add(String.valueOf(choice));
+        for (String field : COMMAND_FIELDS[choice]) {
+            answers.add(field.equals("type") ? operationType(command.optString(field)) : command.optString(field));
+        }
+        // Only the chosen operation type prompts for its details
+        if (command.has("type")) {
+            String type = operationType(command.optString("type"));
+            String[] details = type.equals(String.valueOf(Main.INTELLIGENCE_GATHERING)) ? INTELLIGENCE_FIELDS
+                    : type.equals(String.valueOf(Main.ATTACK_OPERATION)) ? ATTACK_FIELDS : new String[0];
+            for (String field : details) {
+                answers.add(command.optString(field));
+            }
+        }
+        return answers;
+    }
+
+    private static int commandChoice(String command) {
+        for (int i = 1; i < COMMAND_NAMES.length; i++) {
+            if (command.equals(String.valueOf(i)) || command.equals(COMMAND_NAMES[i])) {
+                return i;
+            }
+        }
+        return INVALID;
+    }
+
+    private static String operationType(String type) {
+        if (type.equalsIgnoreCase("intelligence")) {
+            return String.valueOf(Main.INTELLIGENCE_GATHERING);
+        }
+        if (type.equalsIgnoreCase("attack")) {
+            return String.valueOf(Main.ATTACK_OPERATION);
+        }
+        return type;
+    }
+
+    private static void report(Latencies[] latencies, long elapsedNanos) {
+        int total = 0;
+        for (Latencies commandLatencies : latencies) {
+            total += commandLatencies.count;
+        }
+        PrintStream out = System.err;
+        out.printf("%d commands in %.1f ms (%.0f commands/s)%n", total, elapsedNanos / 1e6,
+                total / Math.max(elapsedNanos / 1e9, 1e-9));
+        out.printf("%-32s %8s %10s %10s %10s %10s%n", "command", "count", "mean us", "p50 us", "p99 us", "max us");
+        for (int i = 0; i < latencies.length; i++) {
+            Latencies commandLatencies = latencies[i];
+            if (commandLatencies.count == 0) {
+                continue;
+            }
+            long[] sorted = Arrays.copyOf(commandLatencies.nanos, commandLatencies.count);
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long nanos : sorted) {
+                sum += nanos;
+            }
+            out.printf("%-32s %8d %10.1f %10.1f %10.1f %10.1f%n", COMMAND_NAMES[i], sorted.length,
+                    sum / (double) sorted.length / 1000, percentile(sorted, 0.5) / 1000.0,
+                    percentile(sorted, 0.99) / 1000.0, sorted[sorted.length - 1] / 1000.0);
+        }
+        out.println();
+        out.print(Metrics.getInstance().dump());
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+}
@@ -0,0 +1,405 @@
+import org.json.JSONArray;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Compact binary image of the whole system. Layout:
+//   header      magic, version, string/aircraft/drawer/operation/assignment counts
+//   sources     length and CRC32 of each JSON data file the snapshot was saved next to
+//   strings     length-prefixed UTF-8, referenced by index from the records
+//   aircraft    one int id each
+//   drawer      DRAWER_RECORD_SIZE bytes each
+//   operations  OPERATION_RECORD_SIZE bytes each, times in epoch minutes
+//   assignments aircraft ids, every operation points at its slice
+//   checksum    CRC32 of everything before it
+public class BinarySnapshot {
+    private static final int MAGIC = 0x53484352;
+    private static final int VERSION = 3;
+    public static final int SOURCE_FINGERPRINT_LENGTH = 6;
+    private static final int HEADER_SIZE = 7 * Integer.BYTES + SOURCE_FINGERPRINT_LENGTH * Long.BYTES;
+    private static final int DRAWER_RECORD_SIZE = 5 * Integer.BYTES;
+    private static final int OPERATION_RECORD_SIZE = 8 * Integer.BYTES + 4 * Long.BYTES;
+    private static final int NO_STRING = -1;
+    private static final int ATTACK = 0;
+    private static final int INTELLIGENCE_GATHERING = 1;
+
+    private final long[] sourceFingerprint;
+    private final int[] aircraftIds;
+    private final List<DrawerOperation> drawerOperations;
+    private final List<Operation> operations;
+
+    private BinarySnapshot(long[] sourceFingerprint, int[] aircraftIds, List<DrawerOperation> drawerOperations,
+                           List<Operation> operations) {
+        this.sourceFingerprint = sourceFingerprint;
+        this.aircraftIds = aircraftIds;
+        this.drawerOperations = drawerOperations;
+        this.operations = operations;
+    }
+
+    // See JsonHandler.dataFingerprint
+    public long[] getSourceFingerprint() {
+        return this.sourceFingerprint;
+    }
+
+    public int[] getAircraftIds() {
+        return this.aircraftIds;
+    }
+
+    public List<DrawerOperation> getDrawerOperations() {
+        return this.drawerOperations;
+    }
+
+    public List<Operation> getOperations() {
+        return this.operations;
+    }
+
+    public static void write(String filename, long[] sourceFingerprint, Iterable<Aircraft> aircrafts,
+                             Collection<DrawerOperation> drawerOperations, List<Operation> operations) {
+        if (sourceFingerprint.length != SOURCE_FINGERPRINT_LENGTH) {
+            throw new IllegalArgumentException("Expected a fingerprint of " + SOURCE_FINGERPRINT_LENGTH + " values");
+        }
+        List<Integer> aircraftIds = new ArrayList<>();
+        for (Aircraft aircraft : aircrafts) {
+            aircraftIds.add(aircraft.getId());
+        }
+
+        StringTable strings = new StringTable();
+        int assignmentCount = 0;
+        for (DrawerOperation op : drawerOperations) {
+            strings.indexOf(op.getTaskInformation().getOperationName());
+            strings.indexOf(op.getTaskInformation().getTaskDescription());
+            if (op instanceof IntelligenceDrawerOperation) {
+                strings.indexOf(((IntelligenceDrawerOperation) op).getCameraType());
+                strings.indexOf(((IntelligenceDrawerOperation) op).getFlightRoute());
+            }
+        }
+        for (Operation op : operations) {
+            strings.indexOf(op.getTaskInformation().getOperationName());
+            strings.indexOf(op.getTaskInformation().getTaskDescription());
+            if (op instanceof IntelligenceGatheringOperation) {
+                strings.indexOf(((IntelligenceGatheringOperation) op).getCameraType());
+                strings.indexOf(((IntelligenceGatheringOperation) op).getFlightRoute());
+            } else {
+                strings.indexOf(((AttackOperation) op).getArmamentType());
+            }
+            assignmentCount += op.getAssignedAircrafts().size();
+        }
+
+        long size = HEADER_SIZE + strings.byteSize()
+                + (long) aircraftIds.size() * Integer.BYTES
+                + (long) drawerOperations.size() * DRAWER_RECORD_SIZE
+                + (long) operations.size() * OPERATION_RECORD_SIZE
+                + (long) assignmentCount * Integer.BYTES
+                + Integer.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Snapshot too large: " + size + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(strings.size());
+        buffer.putInt(aircraftIds.size());
+        buffer.putInt(drawerOperations.size());
+        buffer.putInt(operations.size());
+        buffer.putInt(assignmentCount);
+        for (long value : sourceFingerprint) {
+            buffer.putLong(value);
+        }
+        strings.writeTo(buffer);
+
+        for (int id : aircraftIds) {
+            buffer.putInt(id);
+        }
+
+        for (DrawerOperation op : drawerOperations) {
+            TaskInformation taskInformation = op.getTaskInformation();
+            buffer.putInt(strings.indexOf(taskInformation.getOperationName()));
+            buffer.putInt(strings.indexOf(taskInformation.getTaskDescription()));
+            buffer.putInt(taskInformation.getNumOfAircrafts());
+            if (op instanceof IntelligenceDrawerOperation) {
+                buffer.putInt(strings.indexOf(((IntelligenceDrawerOperation) op).getCameraType()));
+                buffer.putInt(strings.indexOf(((IntelligenceDrawerOperation) op).getFlightRoute()));
+            } else {
+                buffer.putInt(NO_STRING);
+                buffer.putInt(NO_STRING);
+            }
+        }
+
+        int assignmentOffset = 0;
+        for (Operation op : operations) {
+            TaskInformation taskInformation = op.getTaskInformation();
+            buffer.putInt(strings.indexOf(taskInformation.getOperationName()));
+            buffer.putInt(strings.indexOf(taskInformation.getTaskDescription()));
+            buffer.putInt(taskInformation.getNumOfAircrafts());
+            buffer.putLong(op.getStartMinute());
+            buffer.putLong(op.getEndMinute());
+            if (op instanceof IntelligenceGatheringOperation) {
+                buffer.putInt(INTELLIGENCE_GATHERING);
+                buffer.putInt(strings.indexOf(((IntelligenceGatheringOperation) op).getCameraType()));
+                buffer.putInt(strings.indexOf(((IntelligenceGatheringOperation) op).getFlightRoute()));
+                buffer.putDouble(0);
+                buffer.putDouble(0);
+            } else {
+                AttackOperation attackOperation = (AttackOperation) op;
+                buffer.putInt(ATTACK);
+                buffer.putInt(strings.indexOf(attackOperation.getArmamentType()));
+                buffer.putInt(NO_STRING);
+                buffer.putDouble(attackOperation.getAttackLocation().getX());
+                buffer.putDouble(attackOperation.getAttackLocation().getY());
+            }
+            buffer.putInt(assignmentOffset);
+            buffer.putInt(op.getAssignedAircrafts().size());
+            assignmentOffset += op.getAssignedAircrafts().size();
+        }
+
+        for (Operation op : operations) {
+            AircraftIdSet assignedAircrafts = op.getAssignedAircrafts();
+            for (int i = 0; i < assignedAircrafts.size(); i++) {
+                buffer.putInt(assignedAircrafts.get(i));
+            }
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+
+        // Written next to the snapshot and moved over it, so a crash mid-write leaves the
+        // previous snapshot in place instead of a truncated one
+        buffer.flip();
+        Path target = Path.of(filename);
+        Path temporary = Path.of(filename + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Any file that does not decode cleanly, e.g. one cut short, fails with an IOException
+    public static BinarySnapshot read(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE + Integer.BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a snapshot file: " + filename);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            // A flipped count would otherwise decode into huge or wrong records
+            int checksumPosition = buffer.limit() - Integer.BYTES;
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.slice(0, checksumPosition));
+            if ((int) checksum.getValue() != buffer.getInt(checksumPosition)) {
+                throw new IOException("Snapshot checksum mismatch: " + filename);
+            }
+            return decode(buffer.slice(0, checksumPosition), filename);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt snapshot file: " + filename, e);
+        }
+    }
+
+    private static BinarySnapshot decode(ByteBuffer buffer, String filename) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a snapshot file: " + filename);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        int stringCount = buffer.getInt();
+        int aircraftCount = buffer.getInt();
+        int drawerCount = buffer.getInt();
+        int operationCount = buffer.getInt();
+        int assignmentCount = buffer.getInt();
+        if (stringCount < 0 || aircraftCount < 0 || drawerCount < 0 || operationCount < 0
+                || assignmentCount < 0 || stringCount > buffer.remaining() / Integer.BYTES) {
+            throw new IOException("Corrupt snapshot header: " + filename);
+        }
+        long[] sourceFingerprint = new long[SOURCE_FINGERPRINT_LENGTH];
+        for (int i = 0; i < sourceFingerprint.length; i++) {
+            sourceFingerprint[i] = buffer.getLong();
+        }
+
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Corrupt snapshot string table: " + filename);
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        long expectedRemaining = (long) aircraftCount * Integer.BYTES + (long) drawerCount * DRAWER_RECORD_SIZE
+                + (long) operationCount * OPERATION_RECORD_SIZE + (long) assignmentCount * Integer.BYTES;
+        if (buffer.remaining() != expectedRemaining) {
+            throw new IOException("Snapshot file has " + buffer.remaining() + " bytes of records, expected "
+                    + expectedRemaining + ": " + filename);
+        }
+
+        int[] aircraftIds = new int[aircraftCount];
+        buffer.asIntBuffer().get(aircraftIds);
+        buffer.position(buffer.position() + aircraftCount * Integer.BYTES);
+
+        List<DrawerOperation> drawerOperations = new ArrayList<>(drawerCount);
+        for (int i = 0; i < drawerCount; i++) {
+            TaskInformation taskInformation = new TaskInformation(strings[buffer.getInt()],
+                    strings[buffer.getInt()], buffer.getInt());
+            int cameraType = buffer.getInt();
+            int flightRoute = buffer.getInt();
+            if (cameraType == NO_STRING) {
+                drawerOperations.add(new DrawerOperation(taskInformation));
+            } else {
+                drawerOperations.add(new IntelligenceDrawerOperation(taskInformation,
+                        strings[cameraType], strings[flightRoute]));
+            }
+        }
+
+        // Assignments sit after the fixed-width operation records
+        int assignmentsStart = buffer.position() + operationCount * OPERATION_RECORD_SIZE;
+        int[] assignments = new int[assignmentCount];
+        buffer.slice(assignmentsStart, assignmentCount * Integer.BYTES).asIntBuffer().get(assignments);
+
+        List<Operation> operations = new ArrayList<>(operationCount);
+        for (int i = 0; i < operationCount; i++) {
+            TaskInformation taskInformation = new TaskInformation(strings[buffer.getInt()],
+                    strings[buffer.getInt()], buffer.getInt());
+            long start = buffer.getLong();
+            long end = buffer.getLong();
+            int kind = buffer.getInt();
+            int firstDetail = buffer.getInt();
+            int secondDetail = buffer.getInt();
+            double x = buffer.getDouble();
+            double y = buffer.getDouble();
+            int assignmentOffset = buffer.getInt();
+            int assignedCount = buffer.getInt();
+
+            Operation op;
+            if (kind == INTELLIGENCE_GATHERING) {
+                op = new IntelligenceGatheringOperation(taskInformation, strings[firstDetail],
+                        strings[secondDetail], Utils.fromEpochMinute(start), Utils.fromEpochMinute(end));
+            } else {
+                op = new AttackOperation(taskInformation, strings[firstDetail], new Point(x, y),
+                        Utils.fromEpochMinute(start), Utils.fromEpochMinute(end));
+            }
+            AircraftIdSet assignedAircrafts = new AircraftIdSet(taskInformation.getNumOfAircrafts());
+            for (int j = assignmentOffset; j < assignmentOffset + assignedCount; j++) {
+                assignedAircrafts.add(assignments[j]);
+            }
+            op.setAssignedAircrafts(assignedAircrafts);
+            operations.add(op);
+        }
+        return new BinarySnapshot(sourceFingerprint, aircraftIds, drawerOperations, operations);
+    }
+
+    // Converts the JSON data files into a snapshot
+    public static void fromJson(String snapshotFilename) throws IOException {
+        AircraftDirectory aircrafts = new AircraftDirectory();
+        List<DrawerOperation> drawerOperations = new ArrayList<>();
+        List<Operation> operations = new ArrayList<>();
+        JsonHandler jsonHandler = new JsonHandler(new OperationRegistry());
+        jsonHandler.loadJson(aircrafts, drawerOperations, operations);
+        write(snapshotFilename, jsonHandler.dataFingerprint(), aircrafts, drawerOperations, operations);
+    }
+
+    // Writes the contents of a snapshot as the three JSON files
+    public static void toJson(String snapshotFilename, String aircraftFilename, String drawerOperationFilename,
+                              String operationFilename) throws IOException {
+        BinarySnapshot snapshot = read(snapshotFilename);
+        Utils.writeJsonToFile(aircraftFilename, snapshot.aircraftIdsToJson().toString());
+        Utils.writeJsonToFile(drawerOperationFilename, snapshot.drawerOperationsToJson().toString());
+        Utils.writeJsonToFile(operationFilename, snapshot.operationsToJson().toString());
+    }
+
+    public JSONArray aircraftIdsToJson() {
+        return new JSONArray(this.aircraftIds);
+    }
+
+    public JSONArray drawerOperationsToJson() {
+        JSONArray jsonDrawerOperations = new JSONArray();
+        for (DrawerOperation op : this.drawerOperations) {
+            if (op instanceof IntelligenceDrawerOperation) {
+                jsonDrawerOperations.put(Utils.intelligenceDrawerToJson((IntelligenceDrawerOperation) op));
+            } else {
+                jsonDrawerOperations.put(Utils.drawerOperationToJson(op));
+            }
+        }
+        return jsonDrawerOperations;
+    }
+
+    public JSONArray operationsToJson() {
+        JSONArray jsonOperations = new JSONArray();
+        for (Operation op : this.operations) {
+            jsonOperations.put(Utils.operationToJson(op));
+        }
+        return jsonOperations;
+    }
+
+    private static class StringTable {
+        private final HashMap<String, Integer> indexes = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+        private long byteSize;
+
+        private int indexOf(String value) {
+            Integer index = this.indexes.get(value);
+            if (index != null) {
+                return index;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            this.indexes.put(value, this.encoded.size());
+            this.encoded.add(bytes);
+            this.byteSize += Integer.BYTES + bytes.length;
+            return this.encoded.size() - 1;
+        }
+
+        private int size() {
+            return this.encoded.size();
+        }
+
+        private long byteSize() {
+            return this.byteSize;
+        }
+
+        private void writeTo(ByteBuffer buffer) {
+            for (byte[] bytes : this.encoded) {
+                buffer.putInt(bytes.length);
+                buffer.put(bytes);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && args[0].equals("json-to-snapshot")) {
+            fromJson(args[1]);
+        } else if (args.length == 5 && args[0].equals("snapshot-to-json")) {
+            toJson(args[1], args[2], args[3], args[4]);
+        } else {
+            System.out.println("Usage: BinarySnapshot json-to-snapshot <snapshot>");
+            System.out.println("       BinarySnapshot snapshot-to-json <snapshot> <aircraft.json> "
+                    + "<drawerOperation.json> <operation.json>");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+import java.util.List;
+
+// Everything one MainSystem mutation changed, in the order it happened. version is the
+// SystemSnapshot version the mutation left behind, every batch has a version of its own:
+// a consumer that starts from getSnapshot() skips the batches at or below the snapshot's
+// version
+public class ChangeBatch {
+    private final long version;
+    private final String mutation;
+    private final List<ChangeEvent> events;
+
+    public ChangeBatch(long version, String mutation, List<ChangeEvent> events) {
+        this.version = version;
+        this.mutation = mutation;
+        this.events = List.copyOf(events);
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    // Name of the MainSystem method that made the changes, e.g. "changeOperationTime"
+    public String getMutation() {
+        return this.mutation;
+    }
+
+    public List<ChangeEvent> getEvents() {
+        return this.events;
+    }
+
+    public String toString() {
+        return "v" + this.version + " " + this.mutation + " " + this.events;
+    }
+}
@@ -0,0 +1,78 @@
+// One change inside a ChangeBatch. Operation events carry the state of the operation
+// right after the mutation, so a consumer can apply them without asking MainSystem
+public class ChangeEvent {
+    public enum Type {
+        AIRCRAFT_ADDED,
+        OPERATION_ADDED,
+        // New crew, released crew or new times, the view holds all of them
+        OPERATION_CHANGED,
+        DRAWER_OPERATION_ADDED,
+        // Converted into an operation, whose OPERATION_ADDED is in the same batch when it succeeded
+        DRAWER_OPERATION_REMOVED
+    }
+
+    private final Type type;
+    private final int aircraftId;
+    private final OperationView operation;
+    private final DrawerOperation drawerOperation;
+
+    private ChangeEvent(Type type, int aircraftId, OperationView operation, DrawerOperation drawerOperation) {
+        this.type = type;
+        this.aircraftId = aircraftId;
+        this.operation = operation;
+        this.drawerOperation = drawerOperation;
+    }
+
+    public static ChangeEvent aircraftAdded(int id) {
+        return new ChangeEvent(Type.AIRCRAFT_ADDED, id, null, null);
+    }
+
+    public static ChangeEvent operationAdded(OperationView operation) {
+        return new ChangeEvent(Type.OPERATION_ADDED, -1, operation, null);
+    }
+
+    public static ChangeEvent operationChanged(OperationView operation) {
+        return new ChangeEvent(Type.OPERATION_CHANGED, -1, operation, null);
+    }
+
+    public static ChangeEvent drawerOperationAdded(DrawerOperation drawerOperation) {
+        return new ChangeEvent(Type.DRAWER_OPERATION_ADDED, -1, null, drawerOperation);
+    }
+
+    public static ChangeEvent drawerOperationRemoved(DrawerOperation drawerOperation) {
+        return new ChangeEvent(Type.DRAWER_OPERATION_REMOVED, -1, null, drawerOperation);
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    // Only for AIRCRAFT_ADDED, -1 otherwise
+    public int getAircraftId() {
+        return this.aircraftId;
+    }
+
+    // Only for OPERATION_ADDED and OPERATION_CHANGED, null otherwise
+    public OperationView getOperation() {
+        return this.operation;
+    }
+
+    // Only for the drawer operation events, null otherwise
+    public DrawerOperation getDrawerOperation() {
+        return this.drawerOperation;
+    }
+
+    public String getOperationName() {
+        if (this.operation != null) {
+            return this.operation.getOperationName();
+        }
+        return this.drawerOperation == null ? null : this.drawerOperation.getTaskInformation().getOperationName();
+    }
+
+    public String toString() {
+        if (this.type == Type.AIRCRAFT_ADDED) {
+            return this.type + " " + this.aircraftId;
+        }
+        return this.type + " " + getOperationName();
+    }
+}
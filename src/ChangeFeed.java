@@ -0,0 +1,205 @@
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Publishes the ChangeBatch of every MainSystem mutation to its subscribers. Mutations
+// never wait for a subscriber: each one gets its own bounded buffer, drained on a pooled
+// daemon thread as far as the subscriber's demand allows. A subscriber that lets its buffer fill
+// up is dropped with a ChangeFeed.OverflowException, it can subscribe again and resync
+// from MainSystem.getSnapshot()
+public class ChangeFeed implements Flow.Publisher<ChangeBatch> {
+    private final int bufferCapacity;
+    private final Executor executor;
+    private final CopyOnWriteArrayList<FeedSubscription> subscriptions;
+    private volatile boolean closed;
+
+    public static class OverflowException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public OverflowException(int bufferCapacity) {
+            super("More than " + bufferCapacity + " change batches were waiting for demand");
+        }
+    }
+
+    public ChangeFeed(int bufferCapacity) {
+        this(bufferCapacity, newDrainPool());
+    }
+
+    public ChangeFeed(int bufferCapacity, Executor executor) {
+        this.bufferCapacity = bufferCapacity;
+        this.executor = executor;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    // Subscribers may block in onNext, so drains get threads of their own instead of the common pool.
+    // Idle threads end after a minute. The pool is never shut down, a closed feed still completes late subscribers
+    private static Executor newDrainPool() {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void subscribe(Flow.Subscriber<? super ChangeBatch> subscriber) {
+        Objects.requireNonNull(subscriber);
+        FeedSubscription subscription = new FeedSubscription(subscriber);
+        this.subscriptions.add(subscription);
+        if (this.closed) {
+            subscription.complete();
+        }
+        subscription.signal();
+    }
+
+    public boolean hasSubscribers() {
+        return !this.subscriptions.isEmpty();
+    }
+
+    // Never blocks, callers publish while holding MainSystem locks
+    public void offer(ChangeBatch batch) {
+        for (FeedSubscription subscription : this.subscriptions) {
+            subscription.offer(batch);
+        }
+    }
+
+    // Subscribers get onComplete once they took what is already buffered
+    public void close() {
+        this.closed = true;
+        for (FeedSubscription subscription : this.subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    private final class FeedSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super ChangeBatch> subscriber;
+        // Number of signals the drain still has to look at, it runs while this is above 0
+        private final AtomicInteger pendingSignals;
+
+        // Guarded by this
+        private final ArrayDeque<ChangeBatch> buffer;
+        private long demand;
+        private boolean completed;
+        private Throwable error;
+        private boolean cancelled;
+
+        // Only touched by the drain
+        private boolean subscribed;
+
+        private FeedSubscription(Flow.Subscriber<? super ChangeBatch> subscriber) {
+            this.subscriber = subscriber;
+            this.pendingSignals = new AtomicInteger();
+            this.buffer = new ArrayDeque<>();
+        }
+
+        private void offer(ChangeBatch batch) {
+            synchronized (this) {
+                if (this.cancelled || this.completed || this.error != null) {
+                    return;
+                }
+                if (this.buffer.size() == ChangeFeed.this.bufferCapacity) {
+                    this.buffer.clear();
+                    this.error = new OverflowException(ChangeFeed.this.bufferCapacity);
+                } else {
+                    this.buffer.add(batch);
+                }
+            }
+            signal();
+        }
+
+        private void complete() {
+            synchronized (this) {
+                this.completed = true;
+            }
+            signal();
+        }
+
+        public void request(long n) {
+            synchronized (this) {
+                if (n <= 0) {
+                    this.buffer.clear();
+                    this.error = new IllegalArgumentException("Requested " + n + " change batches");
+                } else {
+                    this.demand = this.demand + n < 0 ? Long.MAX_VALUE : this.demand + n;
+                }
+            }
+            signal();
+        }
+
+        public void cancel() {
+            synchronized (this) {
+                this.cancelled = true;
+                this.buffer.clear();
+            }
+            ChangeFeed.this.subscriptions.remove(this);
+        }
+
+        private void signal() {
+            if (this.pendingSignals.getAndIncrement() == 0) {
+                ChangeFeed.this.executor.execute(this);
+            }
+        }
+
+        // Delivers the signals one at a time, never on two threads at once
+        public void run() {
+            int missed = 1;
+            do {
+                if (!this.subscribed) {
+                    this.subscribed = true;
+                    try {
+                        this.subscriber.onSubscribe(this);
+                    } catch (Throwable t) {
+                        cancel();
+                    }
+                }
+                drain();
+                missed = this.pendingSignals.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            while (true) {
+                ChangeBatch next;
+                Throwable failure = null;
+                synchronized (this) {
+                    if (this.cancelled) {
+                        return;
+                    }
+                    if (this.error != null) {
+                        failure = this.error;
+                    } else if (this.demand == 0 || this.buffer.isEmpty()) {
+                        if (!this.completed || !this.buffer.isEmpty()) {
+                            return;
+                        }
+                    }
+                    next = failure == null && this.demand > 0 ? this.buffer.poll() : null;
+                    if (next != null) {
+                        this.demand--;
+                    } else {
+                        // Terminal signal, nothing is delivered after it
+                        this.cancelled = true;
+                    }
+                }
+                if (next == null) {
+                    ChangeFeed.this.subscriptions.remove(this);
+                    if (failure != null) {
+                        this.subscriber.onError(failure);
+                    } else {
+                        this.subscriber.onComplete();
+                    }
+                    return;
+                }
+                try {
+                    this.subscriber.onNext(next);
+                } catch (Throwable t) {
+                    cancel();
+                    return;
+                }
+            }
+        }
+    }
+}
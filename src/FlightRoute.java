@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Waypoint polyline parsed from the flight route text the operator entered, e.g.
+// "(10,20) -> (30,40) -> (35,60)" or "10 20; 30 40; 35 60". Text that doesn't parse
+// as waypoints is kept as is and gives an empty route, which no region query matches
+public class FlightRoute {
+    private final String text;
+    private final List<Point> waypoints;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    private FlightRoute(String text, List<Point> waypoints) {
+        this.text = text;
+        this.waypoints = waypoints;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Point waypoint : waypoints) {
+            minX = Math.min(minX, waypoint.getX());
+            minY = Math.min(minY, waypoint.getY());
+            maxX = Math.max(maxX, waypoint.getX());
+            maxY = Math.max(maxY, waypoint.getY());
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public static FlightRoute parse(String text) {
+        if (text == null || text.isBlank()) {
+            return new FlightRoute(text, List.of());
+        }
+        List<Point> waypoints = new ArrayList<>();
+        for (String waypoint : text.split("->|;")) {
+            Point point = parseWaypoint(waypoint);
+            if (point == null) {
+                return new FlightRoute(text, List.of());
+            }
+            waypoints.add(point);
+        }
+        return new FlightRoute(text, Collections.unmodifiableList(waypoints));
+    }
+
+    // "x,y", "x y" or either of them in parentheses
+    private static Point parseWaypoint(String waypoint) {
+        String trimmed = waypoint.trim();
+        if (trimmed.startsWith("(") && trimmed.endsWith(")")) {
+            trimmed = trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        String[] coordinates = trimmed.split("\\s*,\\s*|\\s+");
+        if (coordinates.length != 2) {
+            return null;
+        }
+        try {
+            double x = Double.parseDouble(coordinates[0]);
+            double y = Double.parseDouble(coordinates[1]);
+            return Double.isFinite(x) && Double.isFinite(y) ? new Point(x, y) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public String getText() {
+        return this.text;
+    }
+
+    public List<Point> getWaypoints() {
+        return this.waypoints;
+    }
+
+    public boolean isEmpty() {
+        return this.waypoints.isEmpty();
+    }
+
+    public double getMinX() {
+        return this.minX;
+    }
+
+    public double getMinY() {
+        return this.minY;
+    }
+
+    public double getMaxX() {
+        return this.maxX;
+    }
+
+    public double getMaxY() {
+        return this.maxY;
+    }
+
+    // Whether any leg of the route touches the box (edges included)
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        if (isEmpty() || this.maxX < minX || this.minX > maxX || this.maxY < minY || this.minY > maxY) {
+            return false;
+        }
+        if (this.waypoints.size() == 1) {
+            return true;
+        }
+        for (int i = 1; i < this.waypoints.size(); i++) {
+            if (segmentIntersectsBox(this.waypoints.get(i - 1), this.waypoints.get(i), minX, minY, maxX, maxY)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Shortest distance from (x, y) to the route, infinite for an empty route
+    public double distanceTo(double x, double y) {
+        if (isEmpty()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        Point first = this.waypoints.get(0);
+        double best = Math.hypot(first.getX() - x, first.getY() - y);
+        for (int i = 1; i < this.waypoints.size(); i++) {
+            best = Math.min(best, segmentDistance(this.waypoints.get(i - 1), this.waypoints.get(i), x, y));
+        }
+        return best;
+    }
+
+    // Liang-Barsky clipping of the segment against the box
+    private static boolean segmentIntersectsBox(Point from, Point to, double minX, double minY,
+                                                double maxX, double maxY) {
+        double dx = to.getX() - from.getX();
+        double dy = to.getY() - from.getY();
+        double[] low = {0};
+        double[] high = {1};
+        return clip(-dx, from.getX() - minX, low, high)
+                && clip(dx, maxX - from.getX(), low, high)
+                && clip(-dy, from.getY() - minY, low, high)
+                && clip(dy, maxY - from.getY(), low, high);
+    }
+
+    private static boolean clip(double denominator, double numerator, double[] low, double[] high) {
+        if (denominator == 0) {
+            return numerator >= 0;
+        }
+        double t = numerator / denominator;
+        if (denominator < 0) {
+            if (t > high[0]) {
+                return false;
+            }
+            low[0] = Math.max(low[0], t);
+        } else {
+            if (t < low[0]) {
+                return false;
+            }
+            high[0] = Math.min(high[0], t);
+        }
+        return true;
+    }
+
+    private static double segmentDistance(Point from, Point to, double x, double y) {
+        double dx = to.getX() - from.getX();
+        double dy = to.getY() - from.getY();
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0
+                : Math.max(0, Math.min(1, ((x - from.getX()) * dx + (y - from.getY()) * dy) / lengthSquared));
+        return Math.hypot(from.getX() + t * dx - x, from.getY() + t * dy - y);
+    }
+
+    public String toString() {
+        return this.text;
+    }
+}
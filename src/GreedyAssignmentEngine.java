@@ -0,0 +1,12 @@
+import java.util.List;
+
+// First fit: every aircraft joins each operation it can, in aircraft and operation order
+public class GreedyAssignmentEngine implements AssignmentEngine {
+    public void assign(List<Aircraft> aircrafts, List<Operation> operations, Target target) {
+        for (Aircraft aircraft : aircrafts) {
+            for (Operation operation : operations) {
+                target.assign(aircraft, operation);
+            }
+        }
+    }
+}
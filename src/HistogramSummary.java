@@ -0,0 +1,50 @@
+// Point-in-time figures of a LatencyHistogram, in nanoseconds. The getters make it a
+// JMX composite value
+public class HistogramSummary {
+    private final long count;
+    private final double meanNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    public HistogramSummary(long count, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+                            long p999Nanos, long maxNanos) {
+        this.count = count;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public double getMeanNanos() {
+        return this.meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return this.p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return this.p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return this.p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return this.p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return this.maxNanos;
+    }
+}
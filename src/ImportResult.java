@@ -0,0 +1,73 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of MainSystem.importBatch: how many items were added and why the others were not
+public class ImportResult {
+    private int importedAircrafts;
+    private int importedOperations;
+    private int importedDrawerOperations;
+    private final List<Rejection> rejections;
+
+    public static class Rejection {
+        private final String item;
+        private final String reason;
+
+        public Rejection(String item, String reason) {
+            this.item = item;
+            this.reason = reason;
+        }
+
+        public String getItem() {
+            return this.item;
+        }
+
+        public String getReason() {
+            return this.reason;
+        }
+
+        public String toString() {
+            return this.item + ": " + this.reason;
+        }
+    }
+
+    public ImportResult() {
+        this.rejections = new ArrayList<>();
+    }
+
+    public void aircraftImported() {
+        this.importedAircrafts++;
+    }
+
+    public void operationImported() {
+        this.importedOperations++;
+    }
+
+    public void drawerOperationImported() {
+        this.importedDrawerOperations++;
+    }
+
+    public void reject(String item, String reason) {
+        this.rejections.add(new Rejection(item, reason));
+    }
+
+    public int getImportedAircrafts() {
+        return this.importedAircrafts;
+    }
+
+    public int getImportedOperations() {
+        return this.importedOperations;
+    }
+
+    public int getImportedDrawerOperations() {
+        return this.importedDrawerOperations;
+    }
+
+    public List<Rejection> getRejections() {
+        return Collections.unmodifiableList(this.rejections);
+    }
+
+    public boolean hasRejections() {
+        return !this.rejections.isEmpty();
+    }
+}
@@ -1,10 +1,13 @@
+import java.time.LocalDateTime;
+import java.util.Objects;
+
 public class IntelligenceDrawerOperation extends DrawerOperation {
     private final String cameraType;
-    private final String flightRoute;
+    private final FlightRoute route;
     public IntelligenceDrawerOperation(TaskInformation TI, String cameraType, String flightRoute) {
         super(TI);
         this.cameraType = cameraType;
-        this.flightRoute = flightRoute;
+        this.route = FlightRoute.parse(flightRoute);
     }
 
     public String getCameraType() {
@@ -12,6 +15,17 @@ public class IntelligenceDrawerOperation extends DrawerOperation {
     }
 
     public String getFlightRoute() {
-        return flightRoute;
+        return route.getText();
+    }
+
+    public FlightRoute getRoute() {
+        return route;
+    }
+
+    // The stored route is already parsed, only a different route text is parsed again
+    public IntelligenceGatheringOperation createIntelligenceGatheringOperation(LocalDateTime start, LocalDateTime end,
+                                                                               String cameraType, String flightRoute) {
+        FlightRoute route = Objects.equals(this.route.getText(), flightRoute) ? this.route : FlightRoute.parse(flightRoute);
+        return new IntelligenceGatheringOperation(getTaskInformation(), cameraType, route, start, end);
     }
 }
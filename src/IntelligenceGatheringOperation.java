@@ -2,13 +2,27 @@ import java.time.LocalDateTime;
 
 public class IntelligenceGatheringOperation extends Operation {
     private final String cameraType;
-    private final String flightRoute;
+    private final FlightRoute route;
 
     public IntelligenceGatheringOperation(TaskInformation taskInformation, String cameraType,
                                           String flightRoute, LocalDateTime start, LocalDateTime end) {
+        this(taskInformation, cameraType, FlightRoute.parse(flightRoute), start, end);
+    }
+
+    // Takes an already parsed route, so copies and converted drawer operations skip parsing
+    public IntelligenceGatheringOperation(TaskInformation taskInformation, String cameraType,
+                                          FlightRoute route, LocalDateTime start, LocalDateTime end) {
         super(taskInformation, start, end);
         this.cameraType = cameraType;
-        this.flightRoute = flightRoute;
+        this.route = route;
+    }
+
+    public IntelligenceGatheringOperation copy() {
+        IntelligenceGatheringOperation copy = new IntelligenceGatheringOperation(this.taskInformation,
+                this.cameraType, this.route, this.start, this.end);
+        copy.assignedAircrafts = this.assignedAircrafts.copy();
+        copy.clock = this.clock;
+        return copy;
     }
 
     public String getCameraType() {
@@ -16,19 +30,20 @@ public class IntelligenceGatheringOperation extends Operation {
     }
 
     public String getFlightRoute() {
-        return this.flightRoute;
+        return this.route.getText();
+    }
+
+    public FlightRoute getRoute() {
+        return this.route;
+    }
+
+    public int getReadinessWindowHours() {
+        return 3;
     }
 
-    public boolean isOperationReady() {
-        if (LocalDateTime.now().isAfter(this.start)) {
-            return false;
-        }
+    public boolean hasReadyCrew(int crewSize) {
         int requiredAircraftsCount = taskInformation.getNumOfAircrafts();
-        int amountCurrently = assignedAircrafts.size();
-        boolean hasRequiredAircraftCount =
-                (int)Math.ceil((((double)requiredAircraftsCount) / amountCurrently) * 100) >= 80;
-        boolean isInTime = LocalDateTime.now().isAfter(this.start.minusHours(3));
-        return hasRequiredAircraftCount && isInTime;
+        return (int)Math.ceil((((double)requiredAircraftsCount) / crewSize) * 100) >= 80;
     }
 
     public boolean cannotAssignAircraftToOperation(Aircraft aircraft) {
@@ -0,0 +1,169 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+// Tries to get as many operations as possible to a crew they can be ready with, then
+// lets the greedy pass fill what is left.
+//
+// Each plan walks the operations in some order and crews an operation only when enough
+// aircraft are free for it, picking the free aircraft whose previous block ends last
+// (best fit). Walked by end time this is the classic interval scheduling greedy, which is
+// optimal when every operation needs one aircraft. Operations needing several aircraft
+// make the problem hard, so the engine builds plans from a few fixed orders and then
+// from randomly perturbed ones until the time budget or attempt limit runs out, and
+// applies the plan that crews the most operations
+public class IntervalAssignmentEngine implements AssignmentEngine {
+    private static final int FIXED_ORDERS = 3;
+
+    private final long budgetNanos;
+    private final int maxAttempts;
+    private final long seed;
+
+    public IntervalAssignmentEngine(Duration budget) {
+        this(budget, 64, 42);
+    }
+
+    public IntervalAssignmentEngine(Duration budget, int maxAttempts, long seed) {
+        this.budgetNanos = budget.toNanos();
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.seed = seed;
+    }
+
+    private static class Candidate {
+        private final Operation operation;
+        private final int missingCrew;
+        private final int index;
+
+        private Candidate(Operation operation, int missingCrew, int index) {
+            this.operation = operation;
+            this.missingCrew = missingCrew;
+            this.index = index;
+        }
+    }
+
+    private static class Plan {
+        private final List<Aircraft> aircrafts = new ArrayList<>();
+        private final List<Operation> operations = new ArrayList<>();
+        private int crewedOperations;
+
+        private boolean isBetterThan(Plan other) {
+            if (other == null || this.crewedOperations != other.crewedOperations) {
+                return other == null || this.crewedOperations > other.crewedOperations;
+            }
+            // Same result with fewer aircraft leaves more for the fill pass
+            return this.aircrafts.size() < other.aircrafts.size();
+        }
+    }
+
+    public void assign(List<Aircraft> aircrafts, List<Operation> operations, Target target) {
+        long deadline = System.nanoTime() + this.budgetNanos;
+        List<Candidate> candidates = new ArrayList<>();
+        for (Operation operation : operations) {
+            int readyCrewSize = operation.getReadyCrewSize();
+            int missingCrew = readyCrewSize - operation.getAssignedAircrafts().size();
+            if (readyCrewSize >= 0 && missingCrew > 0 && !operation.isOperationReady()) {
+                candidates.add(new Candidate(operation, missingCrew, candidates.size()));
+            }
+        }
+
+        Random random = new Random(this.seed);
+        Plan best = null;
+        for (int attempt = 0; attempt < this.maxAttempts; attempt++) {
+            if (attempt > 0 && System.nanoTime() > deadline) {
+                break;
+            }
+            candidates.sort(order(attempt, random));
+            Plan plan = plan(aircrafts, candidates);
+            if (plan.isBetterThan(best)) {
+                best = plan;
+            }
+        }
+
+        for (int i = 0; i < best.aircrafts.size(); i++) {
+            target.assign(best.aircrafts.get(i), best.operations.get(i));
+        }
+        new GreedyAssignmentEngine().assign(aircrafts, operations, target);
+    }
+
+    private static Comparator<Candidate> order(int attempt, Random random) {
+        Comparator<Candidate> byEnd = Comparator.comparingLong(c -> c.operation.getEndMinute());
+        if (attempt == 0) {
+            return byEnd.thenComparingInt(c -> c.missingCrew);
+        }
+        if (attempt == 1) {
+            return Comparator.<Candidate>comparingInt(c -> c.missingCrew).thenComparing(byEnd);
+        }
+        if (attempt == FIXED_ORDERS - 1) {
+            return Comparator.<Candidate>comparingLong(c -> c.operation.getEndMinute()
+                    - c.operation.getStartMinute()).thenComparing(byEnd);
+        }
+        // End time pushed back by a random share of the operation's length, larger crews a bit more
+        long salt = random.nextLong();
+        return Comparator.comparingLong(c -> {
+            long length = c.operation.getEndMinute() - c.operation.getStartMinute() + 1;
+            long noise = Math.floorMod(mix(salt ^ c.index), length * c.missingCrew + 1);
+            return c.operation.getEndMinute() + noise;
+        });
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        return value ^ (value >>> 33);
+    }
+
+    private static Plan plan(List<Aircraft> aircrafts, List<Candidate> candidates) {
+        Plan plan = new Plan();
+        // What this plan has booked so far, on top of the real aircraft schedules
+        AircraftSchedule[] planned = new AircraftSchedule[aircrafts.size()];
+        for (int i = 0; i < planned.length; i++) {
+            planned[i] = new AircraftSchedule();
+        }
+
+        int[] chosen = new int[0];
+        long[] chosenBusyUntil = new long[0];
+        for (Candidate candidate : candidates) {
+            Operation operation = candidate.operation;
+            int needed = candidate.missingCrew;
+            if (chosen.length < needed) {
+                chosen = new int[needed];
+                chosenBusyUntil = new long[needed];
+            }
+
+            // Keep the needed aircraft with the latest previous block, sorted descending
+            int found = 0;
+            long from = operation.getStartMinute() - AircraftSchedule.TURNAROUND_MINUTES;
+            for (int i = 0; i < planned.length; i++) {
+                Aircraft aircraft = aircrafts.get(i);
+                if (operation.isAircraftAssigned(aircraft.getId()) || aircraft.operationAssignmentOverlaps(operation)
+                        || planned[i].overlaps(operation)) {
+                    continue;
+                }
+                long busyUntil = Math.max(aircraft.busyUntilBefore(from), planned[i].busyUntilBefore(from));
+                if (found == needed && busyUntil <= chosenBusyUntil[found - 1]) {
+                    continue;
+                }
+                int j = found == needed ? found - 1 : found++;
+                while (j > 0 && chosenBusyUntil[j - 1] < busyUntil) {
+                    chosen[j] = chosen[j - 1];
+                    chosenBusyUntil[j] = chosenBusyUntil[j - 1];
+                    j--;
+                }
+                chosen[j] = i;
+                chosenBusyUntil[j] = busyUntil;
+            }
+            if (found < needed) {
+                continue;
+            }
+
+            for (int k = 0; k < needed; k++) {
+                planned[chosen[k]].add(operation);
+                plan.aircrafts.add(aircrafts.get(chosen[k]));
+                plan.operations.add(operation);
+            }
+            plan.crewedOperations++;
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,153 @@
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Append-only log of mutations, one compact JSON record per line
+public class Journal {
+    private static final LongAdder APPENDS = Metrics.counter("journal.appends");
+    private static final LongAdder BYTES_WRITTEN = Metrics.counter("journal.bytesWritten");
+    private static final LatencyHistogram APPEND_LATENCY = Metrics.histogram("journal.append");
+    private static final LatencyHistogram FLUSH_LATENCY = Metrics.histogram("journal.flush");
+
+    private final String filename;
+    private BufferedWriter writer;
+
+    // Off under group commit, the background flusher calls flush instead
+    private boolean flushEveryRecord = true;
+
+    public Journal(String filename) {
+        this.filename = filename;
+    }
+
+    public boolean isEmpty() {
+        File file = new File(this.filename);
+        return !file.exists() || file.length() == 0;
+    }
+
+    // A crash during an append can leave a torn last record. It is dropped and cut off
+    // the file, so the next append starts on a fresh line. An unreadable record before
+    // the last one means the journal is corrupt and loading it would lose changes
+    public List<JSONObject> readRecords() {
+        List<JSONObject> records = new ArrayList<>();
+        Path path = Path.of(this.filename);
+        if (!Files.exists(path)) {
+            return records;
+        }
+        try {
+            byte[] content = Files.readAllBytes(path);
+            int lineStart = 0;
+            int lineNumber = 0;
+            while (lineStart < content.length) {
+                int lineEnd = lineStart;
+                while (lineEnd < content.length && content[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                lineNumber++;
+                String line = new String(content, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+                if (!line.isBlank()) {
+                    try {
+                        records.add(new JSONObject(line));
+                    } catch (JSONException e) {
+                        if (!isBlank(content, lineEnd)) {
+                            throw new IllegalStateException("Journal " + this.filename + " is corrupt at line "
+                                    + lineNumber, e);
+                        }
+                        truncateTo(path, lineStart);
+                        break;
+                    }
+                    // Complete record, but the crash came before its line break
+                    if (lineEnd == content.length) {
+                        Files.write(path, System.lineSeparator().getBytes(StandardCharsets.UTF_8),
+                                StandardOpenOption.APPEND);
+                    }
+                }
+                lineStart = lineEnd + 1;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return records;
+    }
+
+    private static boolean isBlank(byte[] content, int from) {
+        for (int i = from; i < content.length; i++) {
+            if (!Character.isWhitespace(content[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void truncateTo(Path path, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+
+    public void append(JSONObject record) {
+        long started = System.nanoTime();
+        try {
+            if (this.writer == null) {
+                this.writer = new BufferedWriter(new FileWriter(this.filename, StandardCharsets.UTF_8, true));
+            }
+            String line = record.toString();
+            this.writer.write(line);
+            this.writer.newLine();
+            if (this.flushEveryRecord) {
+                this.writer.flush();
+            }
+            BYTES_WRITTEN.add(Utils.utf8Length(line) + System.lineSeparator().length());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        APPENDS.increment();
+        APPEND_LATENCY.recordSince(started);
+    }
+
+    public void setFlushEveryRecord(boolean flushEveryRecord) {
+        this.flushEveryRecord = flushEveryRecord;
+    }
+
+    public void flush() {
+        if (this.writer == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            this.writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        FLUSH_LATENCY.recordSince(started);
+    }
+
+    // Called once the JSON files hold everything the journal described
+    public void truncate() {
+        close();
+        Utils.writeJsonToFile(this.filename, "");
+    }
+
+    public void close() {
+        if (this.writer == null) {
+            return;
+        }
+        try {
+            this.writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        this.writer = null;
+    }
+}
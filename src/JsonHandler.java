@@ -2,151 +2,650 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 public class JsonHandler {
+    private static final LatencyHistogram LOAD_JSON_LATENCY = Metrics.histogram("json.loadJson");
+    private static final LatencyHistogram LOAD_SNAPSHOT_LATENCY = Metrics.histogram("json.loadSnapshot");
+    private static final LatencyHistogram FLUSH_LATENCY = Metrics.histogram("json.groupCommitFlush");
+    private static final LatencyHistogram EXPORT_LATENCY = Metrics.histogram("json.exportToJson");
+    private static final LongAdder RECORDS_LOADED = Metrics.counter("json.recordsLoaded");
+    private static final LongAdder JOURNAL_RECORDS_REPLAYED = Metrics.counter("journal.recordsReplayed");
+
     private JSONArray jsonAircraft;
     private JSONArray jsonOperations;
     private JSONArray jsonDrawerOperations;
+    private final OperationRegistry registry;
+
+    // When set, mutations are appended here and the JSON files are only rewritten on export
+    private final Journal journal;
+
+    // Set after a cold start from a binary snapshot, the JSON arrays are only built
+    // from it once something needs to be written
+    private BinarySnapshot pendingSnapshot;
+
+    // Group commit: files touched since the last flush, written by a background thread
+    private final HashSet<String> dirtyFiles;
+    private ScheduledExecutorService flusher;
+    private Thread shutdownHook;
+    private final Object flushLock = new Object();
 
     private final String JSON_AIRCRAFT_PATH = "data\\aircraft.json";
     private final String JSON_DRAWER_OPERATION_PATH = "data\\drawerOperation.json";
     private final String JSON_OPERATION_PATH = "data\\operation.json";
+    private final String JOURNAL_PATH = "data\\journal.jsonl";
     private final String SRC_DIRECTORY = "src\\";
 
-    public void setDataFromAircraftJson(HashSet<Aircraft> aircrafts) {
-        String resourceName = JSON_AIRCRAFT_PATH;
-        InputStream is = MainSystem.class.getResourceAsStream(resourceName);
-        if (is == null) {
-            throw new NullPointerException("Cannot find resource file " + resourceName);
+    // Without a data directory the files are read as resources and written under src
+    private final String dataDirectory;
+    private final String aircraftFilename;
+    private final String drawerOperationFilename;
+    private final String operationFilename;
+
+    public JsonHandler(OperationRegistry registry) {
+        this(registry, false);
+    }
+
+    public JsonHandler(OperationRegistry registry, boolean useJournal) {
+        this(registry, useJournal, null);
+    }
+
+    public JsonHandler(OperationRegistry registry, boolean useJournal, String dataDirectory) {
+        this.registry = registry;
+        this.dataDirectory = dataDirectory;
+        this.aircraftFilename = dataFilename(JSON_AIRCRAFT_PATH);
+        this.drawerOperationFilename = dataFilename(JSON_DRAWER_OPERATION_PATH);
+        this.operationFilename = dataFilename(JSON_OPERATION_PATH);
+        this.journal = useJournal ? new Journal(dataFilename(JOURNAL_PATH)) : null;
+        this.dirtyFiles = new HashSet<>();
+    }
+
+    private String dataFilename(String path) {
+        if (this.dataDirectory == null) {
+            return SRC_DIRECTORY + path;
         }
+        return new File(this.dataDirectory, path.substring(path.indexOf('\\') + 1)).getPath();
+    }
 
-        JSONTokener tokener = new JSONTokener(is);
-        this.jsonAircraft = new JSONArray(tokener);
-        for (int i = 0; i < this.jsonAircraft.length(); i++) {
-            aircrafts.add(new Aircraft(this.jsonAircraft.getInt(i)));
+    // Instead of writing on every mutation, files are marked dirty and written at most
+    // once per interval. flush() forces the pending writes, a shutdown hook does the
+    // same when the JVM exits before close()
+    public synchronized void enableGroupCommit(long intervalMillis) {
+        if (this.flusher != null) {
+            return;
+        }
+        if (this.journal != null) {
+            this.journal.setFlushEveryRecord(false);
         }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "json-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        this.shutdownHook = new Thread(this::flush);
+        Runtime.getRuntime().addShutdownHook(this.shutdownHook);
     }
 
-    public void setDataFromDrawerOperationsJson(List<DrawerOperation> drawerOperations) {
-        String resourceName = JSON_DRAWER_OPERATION_PATH;
-        InputStream is = MainSystem.class.getResourceAsStream(resourceName);
-        if (is == null) {
-            throw new NullPointerException("Cannot find resource file " + resourceName);
+    public void flush() {
+        // Serialize under the handler lock, write outside of it so mutations are not
+        // blocked on disk. The flush lock keeps an older snapshot from landing last
+        synchronized (this.flushLock) {
+            long started = System.nanoTime();
+            Map<String, String> pendingWrites = new LinkedHashMap<>();
+            synchronized (this) {
+                for (String filename : this.dirtyFiles) {
+                    pendingWrites.put(filename, jsonContent(filename));
+                }
+                this.dirtyFiles.clear();
+                if (this.journal != null) {
+                    this.journal.flush();
+                }
+            }
+            for (Map.Entry<String, String> write : pendingWrites.entrySet()) {
+                Utils.writeJsonToFile(write.getKey(), write.getValue());
+            }
+            FLUSH_LATENCY.recordSince(started);
         }
+    }
 
-        JSONTokener tokener = new JSONTokener(is);
-        this.jsonDrawerOperations = new JSONArray(tokener);
-        for (int i = 0; i < this.jsonDrawerOperations.length(); i++) {
-            JSONObject currentObject = this.jsonOperations.getJSONObject(i);
+    public void close() {
+        Thread shutdownHook;
+        synchronized (this) {
+            if (this.flusher != null) {
+                this.flusher.shutdown();
+            }
+            shutdownHook = this.shutdownHook;
+            this.shutdownHook = null;
+        }
+        // A closed handler must not stay reachable from the JVM, nor be flushed again at exit
+        if (shutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // Closed while the JVM shuts down, the hooks already run
+            }
+        }
+        flush();
+    }
+
+    private String jsonContent(String filename) {
+        if (filename.equals(this.aircraftFilename)) {
+            return this.jsonAircraft.toString();
+        }
+        if (filename.equals(this.drawerOperationFilename)) {
+            return this.jsonDrawerOperations.toString();
+        }
+        return this.jsonOperations.toString();
+    }
+
+    private void writeJsonFile(String filename) {
+        if (this.flusher != null) {
+            this.dirtyFiles.add(filename);
+        } else {
+            Utils.writeJsonToFile(filename, jsonContent(filename));
+        }
+    }
 
-            String operationName = currentObject.getString("operationName");
-            String taskDescription = currentObject.getString("taskDescription");
-            int numOfAircrafts = currentObject.getInt("numOfAircrafts");
+    // Streams the three files concurrently. Without journal records to replay, every
+    // record is turned into its aircraft/operation while the file is still being read
+    public void loadJson(AircraftDirectory aircrafts, List<DrawerOperation> drawerOperations,
+                         List<Operation> operations) {
+        long started = System.nanoTime();
+        this.jsonAircraft = new JSONArray();
+        this.jsonDrawerOperations = new JSONArray();
+        this.jsonOperations = new JSONArray();
+        List<JSONObject> journalRecords = this.journal == null ? List.of() : this.journal.readRecords();
+        boolean buildWhileReading = journalRecords.isEmpty();
 
-            TaskInformation taskInformation = new TaskInformation(operationName,
-                    taskDescription, numOfAircrafts);
-            if (currentObject.has("cameraType")) {
-                String cameraType = currentObject.getString("cameraType");
-                String flightRoute = currentObject.getString("flightRoute");
-                drawerOperations.add(new IntelligenceDrawerOperation(taskInformation, cameraType, flightRoute));
-            } else {
-                drawerOperations.add(new DrawerOperation(taskInformation));
+        List<Aircraft> loadedAircrafts = new ArrayList<>();
+        CompletableFuture<Void> aircraftLoad = CompletableFuture.runAsync(() ->
+                streamJsonArray(JSON_AIRCRAFT_PATH, this.aircraftFilename, this.jsonAircraft, value -> {
+                    if (buildWhileReading) {
+                        loadedAircrafts.add(new Aircraft(((Number) value).intValue()));
+                    }
+                }));
+        CompletableFuture<Void> drawerOperationLoad = CompletableFuture.runAsync(() ->
+                streamJsonArray(JSON_DRAWER_OPERATION_PATH, this.drawerOperationFilename,
+                        this.jsonDrawerOperations, value -> {
+                    if (buildWhileReading) {
+                        drawerOperations.add(drawerOperationFromJson((JSONObject) value));
+                    }
+                }));
+        CompletableFuture<Void> operationLoad = CompletableFuture.runAsync(() ->
+                streamJsonArray(JSON_OPERATION_PATH, this.operationFilename, this.jsonOperations, value -> {
+                    if (buildWhileReading) {
+                        operations.add(operationFromJson((JSONObject) value));
+                    }
+                }));
+        try {
+            CompletableFuture.allOf(aircraftLoad, drawerOperationLoad, operationLoad).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw e;
         }
+
+        RECORDS_LOADED.add(this.jsonAircraft.length() + this.jsonDrawerOperations.length()
+                + this.jsonOperations.length());
+        if (!buildWhileReading) {
+            JOURNAL_RECORDS_REPLAYED.add(journalRecords.size());
+            replayJournal(journalRecords);
+            for (int i = 0; i < this.jsonAircraft.length(); i++) {
+                loadedAircrafts.add(new Aircraft(this.jsonAircraft.getInt(i)));
+            }
+            for (int i = 0; i < this.jsonDrawerOperations.length(); i++) {
+                drawerOperations.add(drawerOperationFromJson(this.jsonDrawerOperations.getJSONObject(i)));
+            }
+            for (int i = 0; i < this.jsonOperations.length(); i++) {
+                operations.add(operationFromJson(this.jsonOperations.getJSONObject(i)));
+            }
+        }
+
+        for (Aircraft aircraft : loadedAircrafts) {
+            aircrafts.add(aircraft);
+        }
+        for (int i = 0; i < drawerOperations.size(); i++) {
+            this.registry.setJsonPosition(drawerOperations.get(i).getTaskInformation().getOperationName(), i);
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            this.registry.setJsonPosition(operations.get(i).getTaskInformation().getOperationName(), i);
+        }
+        LOAD_JSON_LATENCY.recordSince(started);
     }
 
-    public void setDataFromOperationJson(List<Operation> operations) {
-        String resourceName = JSON_OPERATION_PATH;
-        InputStream is = MainSystem.class.getResourceAsStream(resourceName);
-        if (is == null) {
-            throw new NullPointerException("Cannot find resource file " + resourceName);
+    // Fills the collections from a binary snapshot. Returns false when the snapshot
+    // cannot be used: it is missing, the journal holds mutations that only exist on top
+    // of the JSON files, or the JSON files changed since the snapshot was saved
+    public boolean loadSnapshot(String snapshotFilename, AircraftDirectory aircrafts,
+                                List<DrawerOperation> drawerOperations, List<Operation> operations) {
+        if (!new File(snapshotFilename).exists() || (this.journal != null && !this.journal.isEmpty())) {
+            return false;
+        }
+        long started = System.nanoTime();
+        BinarySnapshot snapshot;
+        try {
+            snapshot = BinarySnapshot.read(snapshotFilename);
+            if (!Arrays.equals(snapshot.getSourceFingerprint(), dataFingerprint())) {
+                return false;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        for (int id : snapshot.getAircraftIds()) {
+            aircrafts.add(new Aircraft(id));
+        }
+        drawerOperations.addAll(snapshot.getDrawerOperations());
+        operations.addAll(snapshot.getOperations());
+        for (int i = 0; i < drawerOperations.size(); i++) {
+            this.registry.setJsonPosition(drawerOperations.get(i).getTaskInformation().getOperationName(), i);
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            this.registry.setJsonPosition(operations.get(i).getTaskInformation().getOperationName(), i);
         }
+        this.pendingSnapshot = snapshot;
+        LOAD_SNAPSHOT_LATENCY.recordSince(started);
+        return true;
+    }
 
-        JSONTokener tokener = new JSONTokener(is);
-        this.jsonOperations = new JSONArray(tokener);
-        for (int i = 0; i < this.jsonOperations.length(); i++) {
-            JSONObject currentObject = this.jsonOperations.getJSONObject(i);
-            String operationName = currentObject.getString("operationName");
-            String taskDescription = currentObject.getString("taskDescription");
-            int numOfAircrafts = currentObject.getInt("numOfAircrafts");
-            TaskInformation taskInformation = new TaskInformation(operationName,
-                    taskDescription, numOfAircrafts);
-
-            // Date in yyyy-MM-dd HH:mm
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-            LocalDateTime start = LocalDateTime.parse(currentObject.getString("start"), formatter);
-            LocalDateTime end = LocalDateTime.parse(currentObject.getString("end"), formatter);
-
-            JSONArray jsonAssignedAircrafts = currentObject.getJSONArray("assignedAircrafts");
-            HashSet<Integer> constructedAircraftsSet = new HashSet<>();
-            for (int j = 0; j < jsonAssignedAircrafts.length(); j++) {
-                constructedAircraftsSet.add(jsonAssignedAircrafts.getInt(j));
-            }
-
-            // Intelligence gathering operation
-            if (currentObject.has("cameraType")) {
-                String cameraType = currentObject.getString("cameraType");
-                String flightRoute = currentObject.getString("flightRoute");
-                Operation op = new IntelligenceGatheringOperation(taskInformation, cameraType,
-                        flightRoute, start, end);
-                op.setAssignedAircrafts(constructedAircraftsSet);
-                operations.add(op);
-            } else {
-                String armamentType = currentObject.getString("armamentType");
-                double x = currentObject.getDouble("x");
-                double y = currentObject.getDouble("y");
-                Point p = new Point(x, y);
-                Operation op = new AttackOperation(taskInformation, armamentType, p, start, end);
-                op.setAssignedAircrafts(constructedAircraftsSet);
-                operations.add(op);
-            }
-        }
-    }
-
-    public void addAircraftToJson(int id, HashSet<Aircraft> aircrafts) {
+    // Length and CRC32 of each data file, -1 for a missing one. Catches the writes of a
+    // handler without a journal as well as files edited by hand
+    public long[] dataFingerprint() throws IOException {
+        String[] filenames = {this.aircraftFilename, this.drawerOperationFilename, this.operationFilename};
+        long[] fingerprint = new long[BinarySnapshot.SOURCE_FINGERPRINT_LENGTH];
+        for (int i = 0; i < filenames.length; i++) {
+            if (!new File(filenames[i]).exists()) {
+                fingerprint[2 * i] = -1;
+                fingerprint[2 * i + 1] = -1;
+                continue;
+            }
+            try (CheckedInputStream in = new CheckedInputStream(new FileInputStream(filenames[i]), new CRC32())) {
+                fingerprint[2 * i] = in.transferTo(OutputStream.nullOutputStream());
+                fingerprint[2 * i + 1] = in.getChecksum().getValue();
+            }
+        }
+        return fingerprint;
+    }
+
+    private void ensureJsonArrays() {
+        if (this.pendingSnapshot == null) {
+            return;
+        }
+        this.jsonAircraft = this.pendingSnapshot.aircraftIdsToJson();
+        this.jsonDrawerOperations = this.pendingSnapshot.drawerOperationsToJson();
+        this.jsonOperations = this.pendingSnapshot.operationsToJson();
+        this.pendingSnapshot = null;
+    }
+
+    // Reads the array one element at a time, handing every element over as soon as it is parsed
+    private void streamJsonArray(String resourceName, String filename, JSONArray target,
+                                 Consumer<Object> onRecord) {
+        InputStream is;
+        if (this.dataDirectory == null) {
+            is = MainSystem.class.getResourceAsStream(resourceName);
+            if (is == null) {
+                throw new NullPointerException("Cannot find resource file " + resourceName);
+            }
+        } else {
+            // A fresh data directory simply starts out empty
+            if (!new File(filename).exists()) {
+                return;
+            }
+            try {
+                is = new FileInputStream(filename);
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Closed right away, an open handle would block rewriting the file on Windows
+        try (is) {
+            JSONTokener tokener = new JSONTokener(is);
+            if (tokener.nextClean() != '[') {
+                throw tokener.syntaxError("A JSONArray text must start with '['");
+            }
+            if (tokener.nextClean() == ']') {
+                return;
+            }
+            tokener.back();
+            while (true) {
+                Object value = tokener.nextValue();
+                target.put(value);
+                onRecord.accept(value);
+                char next = tokener.nextClean();
+                if (next == ']') {
+                    return;
+                }
+                if (next != ',') {
+                    throw tokener.syntaxError("Expected a ',' or ']'");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DrawerOperation drawerOperationFromJson(JSONObject currentObject) {
+        String operationName = currentObject.getString("operationName");
+        String taskDescription = currentObject.getString("taskDescription");
+        int numOfAircrafts = currentObject.getInt("numOfAircrafts");
+
+        TaskInformation taskInformation = new TaskInformation(operationName,
+                taskDescription, numOfAircrafts);
+        if (currentObject.has("cameraType")) {
+            String cameraType = currentObject.getString("cameraType");
+            String flightRoute = currentObject.getString("flightRoute");
+            return new IntelligenceDrawerOperation(taskInformation, cameraType, flightRoute);
+        }
+        return new DrawerOperation(taskInformation);
+    }
+
+    private Operation operationFromJson(JSONObject currentObject) {
+        String operationName = currentObject.getString("operationName");
+        String taskDescription = currentObject.getString("taskDescription");
+        int numOfAircrafts = currentObject.getInt("numOfAircrafts");
+        TaskInformation taskInformation = new TaskInformation(operationName,
+                taskDescription, numOfAircrafts);
+
+        // Date in yyyy-MM-dd HH:mm
+        LocalDateTime start = LocalDateTime.parse(currentObject.getString("start"), Utils.DATE_TIME_FORMATTER);
+        LocalDateTime end = LocalDateTime.parse(currentObject.getString("end"), Utils.DATE_TIME_FORMATTER);
+
+        JSONArray jsonAssignedAircrafts = currentObject.getJSONArray("assignedAircrafts");
+        AircraftIdSet constructedAircraftsSet = new AircraftIdSet(numOfAircrafts);
+        for (int j = 0; j < jsonAssignedAircrafts.length(); j++) {
+            constructedAircraftsSet.add(jsonAssignedAircrafts.getInt(j));
+        }
+
+        // Intelligence gathering operation
+        Operation op;
+        if (currentObject.has("cameraType")) {
+            String cameraType = currentObject.getString("cameraType");
+            String flightRoute = currentObject.getString("flightRoute");
+            op = new IntelligenceGatheringOperation(taskInformation, cameraType,
+                    flightRoute, start, end);
+        } else {
+            String armamentType = currentObject.getString("armamentType");
+            double x = currentObject.getDouble("x");
+            double y = currentObject.getDouble("y");
+            Point p = new Point(x, y);
+            op = new AttackOperation(taskInformation, armamentType, p, start, end);
+        }
+        op.setAssignedAircrafts(constructedAircraftsSet);
+        return op;
+    }
+
+    public synchronized void addAircraftToJson(int id, AircraftDirectory aircrafts) {
+        ensureJsonArrays();
         this.jsonAircraft.put(id);
-        HashSet<Integer> ids = new HashSet<>();
-        for (Aircraft aircraft : aircrafts) {
-            ids.add(aircraft.getId());
+        if (this.journal != null) {
+            this.journal.append(new JSONObject().put("type", "aircraft").put("id", id));
+            return;
+        }
+        if (this.flusher != null) {
+            this.dirtyFiles.add(this.aircraftFilename);
+            return;
         }
-        Utils.writeJsonToFile(SRC_DIRECTORY + JSON_AIRCRAFT_PATH, ids.toString());
+        Utils.writeJsonToFile(this.aircraftFilename, Utils.aircraftIdsToJson(aircrafts));
     }
 
-    public void addOperationToJson(Operation operation) {
-        int idx = Utils.getIndexByOperationName(this.jsonOperations,
-                operation.getTaskInformation().getOperationName());
-        if (idx != -1) {
-            this.jsonOperations.remove(idx);
+    public synchronized void addAssignmentToJson(Operation operation, int aircraftId) {
+        ensureJsonArrays();
+        putOperation(operation);
+        if (this.journal != null) {
+            this.journal.append(new JSONObject().put("type", "assign")
+                    .put("operationName", operation.getTaskInformation().getOperationName())
+                    .put("aircraftId", aircraftId));
+            return;
         }
-        this.jsonOperations.put(Utils.operationToJson(operation));
-        Utils.writeJsonToFile(SRC_DIRECTORY + JSON_OPERATION_PATH, this.jsonOperations.toString());
+        writeJsonFile(this.operationFilename);
     }
 
-    public void addNewOperationToJson(Operation operation) {
-        this.jsonOperations.put(Utils.operationToJson(operation));
-        Utils.writeJsonToFile(SRC_DIRECTORY + JSON_OPERATION_PATH, this.jsonOperations.toString());
+    public synchronized void changeOperationTimeInJson(Operation operation) {
+        ensureJsonArrays();
+        putOperation(operation);
+        if (this.journal != null) {
+            this.journal.append(new JSONObject().put("type", "retime")
+                    .put("operationName", operation.getTaskInformation().getOperationName())
+                    .put("start", Utils.dateTimeToString(operation.getStart()))
+                    .put("end", Utils.dateTimeToString(operation.getEnd())));
+            return;
+        }
+        writeJsonFile(this.operationFilename);
     }
 
-    public void addDrawerOperationToJson(DrawerOperation drawerOperation) {
+    public synchronized void addOperationToJson(Operation operation) {
+        ensureJsonArrays();
+        JSONObject jsonOperation = putOperation(operation);
+        if (this.journal != null) {
+            this.journal.append(new JSONObject().put("type", "operation").put("operation", jsonOperation));
+            return;
+        }
+        writeJsonFile(this.operationFilename);
+    }
+
+    // Replaces the stored operation in place, or appends it when it is not stored yet
+    private JSONObject putOperation(Operation operation) {
+        String opName = operation.getTaskInformation().getOperationName();
+        JSONObject jsonOperation = Utils.operationToJson(operation);
+        int idx = this.registry.getJsonPosition(opName);
+        if (idx == -1) {
+            this.registry.setJsonPosition(opName, this.jsonOperations.length());
+            this.jsonOperations.put(jsonOperation);
+        } else {
+            this.jsonOperations.put(idx, jsonOperation);
+        }
+        return jsonOperation;
+    }
+
+    public synchronized void addDrawerOperationToJson(DrawerOperation drawerOperation) {
+        ensureJsonArrays();
+        JSONObject jsonDrawerOperation = putDrawerOperation(drawerOperation);
+        if (this.journal != null) {
+            this.journal.append(new JSONObject().put("type", "drawer").put("drawerOperation", jsonDrawerOperation));
+            return;
+        }
+        writeJsonFile(this.drawerOperationFilename);
+    }
+
+    private JSONObject putDrawerOperation(DrawerOperation drawerOperation) {
+        this.registry.setJsonPosition(drawerOperation.getTaskInformation().getOperationName(),
+                this.jsonDrawerOperations.length());
+        JSONObject jsonDrawerOperation;
         if (drawerOperation instanceof IntelligenceDrawerOperation) {
-            this.jsonDrawerOperations.put(Utils.intelligenceDrawerToJson((IntelligenceDrawerOperation) drawerOperation));
+            jsonDrawerOperation = Utils.intelligenceDrawerToJson((IntelligenceDrawerOperation) drawerOperation);
         } else {
-            this.jsonDrawerOperations.put(Utils.drawerOperationToJson(drawerOperation));
+            jsonDrawerOperation = Utils.drawerOperationToJson(drawerOperation);
         }
-        Utils.writeJsonToFile(SRC_DIRECTORY + JSON_DRAWER_OPERATION_PATH,
-                this.jsonDrawerOperations.toString());
+        this.jsonDrawerOperations.put(jsonDrawerOperation);
+        return jsonDrawerOperation;
     }
 
-    public void handleDrawerOperationConversion(DrawerOperation drawerOperation) {
+    // Persists a whole import at once: a single journal record, or one write per touched
+    // file. Operations already stored are replaced, new ones appended
+    public synchronized void importToJson(int[] aircraftIds, List<DrawerOperation> drawerOperations,
+                                          List<Operation> operations) {
+        ensureJsonArrays();
+        JSONArray jsonAircraftIds = new JSONArray();
+        for (int id : aircraftIds) {
+            this.jsonAircraft.put(id);
+            jsonAircraftIds.put(id);
+        }
+        JSONArray jsonDrawerOperations = new JSONArray();
+        for (DrawerOperation drawerOperation : drawerOperations) {
+            jsonDrawerOperations.put(putDrawerOperation(drawerOperation));
+        }
+        JSONArray jsonOperations = new JSONArray();
+        for (Operation operation : operations) {
+            jsonOperations.put(putOperation(operation));
+        }
+
+        if (this.journal != null) {
+            this.journal.append(new JSONObject().put("type", "import").put("aircraft", jsonAircraftIds)
+                    .put("drawerOperations", jsonDrawerOperations).put("operations", jsonOperations));
+            return;
+        }
+        if (aircraftIds.length > 0) {
+            writeJsonFile(this.aircraftFilename);
+        }
+        if (!drawerOperations.isEmpty()) {
+            writeJsonFile(this.drawerOperationFilename);
+        }
+        if (!operations.isEmpty()) {
+            writeJsonFile(this.operationFilename);
+        }
+    }
+
+    public synchronized void handleDrawerOperationConversion(DrawerOperation drawerOperation) {
+        ensureJsonArrays();
         String opName = drawerOperation.getTaskInformation().getOperationName();
-        this.jsonDrawerOperations
-                .remove(Utils.getIndexByOperationName(this.jsonDrawerOperations, opName));
-        Utils.writeJsonToFile(SRC_DIRECTORY + JSON_DRAWER_OPERATION_PATH,
-                this.jsonDrawerOperations.toString());
+        int idx = this.registry.getJsonPosition(opName);
+        if (idx == -1) {
+            return;
+        }
+
+        // Move the last drawer operation into the freed slot so no other position shifts
+        int lastIdx = this.jsonDrawerOperations.length() - 1;
+        if (idx != lastIdx) {
+            JSONObject last = this.jsonDrawerOperations.getJSONObject(lastIdx);
+            this.jsonDrawerOperations.put(idx, last);
+            this.registry.setJsonPosition(last.getString("operationName"), idx);
+        }
+        this.jsonDrawerOperations.remove(lastIdx);
+        this.registry.removeJsonPosition(opName);
+        if (this.journal != null) {
+            this.journal.append(new JSONObject().put("type", "conversion").put("operationName", opName));
+            return;
+        }
+        writeJsonFile(this.drawerOperationFilename);
+    }
+
+    // Writes the full JSON files. In journal mode this is the compaction step,
+    // after it the journal is no longer needed to rebuild the state. Holds the flush
+    // lock like flush, so a group commit serialized before the export cannot write its
+    // older content over the export
+    public void exportToJson() {
+        synchronized (this.flushLock) {
+            synchronized (this) {
+                long started = System.nanoTime();
+                ensureJsonArrays();
+                Utils.writeJsonToFile(this.aircraftFilename, this.jsonAircraft.toString());
+                Utils.writeJsonToFile(this.drawerOperationFilename, this.jsonDrawerOperations.toString());
+                Utils.writeJsonToFile(this.operationFilename, this.jsonOperations.toString());
+                this.dirtyFiles.clear();
+                if (this.journal != null) {
+                    this.journal.truncate();
+                }
+                EXPORT_LATENCY.recordSince(started);
+            }
+        }
+    }
+
+    // Applies the journal on top of the arrays read from the JSON files
+    private void replayJournal(List<JSONObject> records) {
+        HashMap<String, Integer> operationPositions = new HashMap<>();
+        for (int i = 0; i < this.jsonOperations.length(); i++) {
+            operationPositions.put(this.jsonOperations.getJSONObject(i).getString("operationName"), i);
+        }
+        HashMap<String, Integer> drawerPositions = new HashMap<>();
+        for (int i = 0; i < this.jsonDrawerOperations.length(); i++) {
+            drawerPositions.put(this.jsonDrawerOperations.getJSONObject(i).getString("operationName"), i);
+        }
+
+        for (JSONObject record : records) {
+            String type = record.getString("type");
+            if (type.equals("aircraft")) {
+                this.jsonAircraft.put(record.getInt("id"));
+
+            } else if (type.equals("operation")) {
+                replayOperation(record.getJSONObject("operation"), operationPositions);
+
+            } else if (type.equals("assign")) {
+                Integer idx = operationPositions.get(record.getString("operationName"));
+                if (idx != null) {
+                    this.jsonOperations.getJSONObject(idx).getJSONArray("assignedAircrafts")
+                            .put(record.getInt("aircraftId"));
+                }
+
+            } else if (type.equals("retime")) {
+                Integer idx = operationPositions.get(record.getString("operationName"));
+                if (idx != null) {
+                    JSONObject jsonOperation = this.jsonOperations.getJSONObject(idx);
+                    jsonOperation.put("start", record.getString("start"));
+                    jsonOperation.put("end", record.getString("end"));
+                    jsonOperation.put("assignedAircrafts", new JSONArray());
+                }
+
+            } else if (type.equals("drawer")) {
+                replayDrawerOperation(record.getJSONObject("drawerOperation"), drawerPositions);
+
+            } else if (type.equals("import")) {
+                JSONArray aircraftIds = record.getJSONArray("aircraft");
+                for (int i = 0; i < aircraftIds.length(); i++) {
+                    this.jsonAircraft.put(aircraftIds.getInt(i));
+                }
+                JSONArray drawerOperations = record.getJSONArray("drawerOperations");
+                for (int i = 0; i < drawerOperations.length(); i++) {
+                    replayDrawerOperation(drawerOperations.getJSONObject(i), drawerPositions);
+                }
+                JSONArray operations = record.getJSONArray("operations");
+                for (int i = 0; i < operations.length(); i++) {
+                    replayOperation(operations.getJSONObject(i), operationPositions);
+                }
+
+            } else if (type.equals("conversion")) {
+                Integer idx = drawerPositions.remove(record.getString("operationName"));
+                if (idx != null) {
+                    int lastIdx = this.jsonDrawerOperations.length() - 1;
+                    if (idx != lastIdx) {
+                        JSONObject last = this.jsonDrawerOperations.getJSONObject(lastIdx);
+                        this.jsonDrawerOperations.put(idx, last);
+                        drawerPositions.put(last.getString("operationName"), idx);
+                    }
+                    this.jsonDrawerOperations.remove(lastIdx);
+                }
+            }
+        }
+    }
+
+    private void replayOperation(JSONObject jsonOperation, HashMap<String, Integer> operationPositions) {
+        Integer idx = operationPositions.get(jsonOperation.getString("operationName"));
+        if (idx == null) {
+            operationPositions.put(jsonOperation.getString("operationName"), this.jsonOperations.length());
+            this.jsonOperations.put(jsonOperation);
+        } else {
+            this.jsonOperations.put(idx, jsonOperation);
+        }
+    }
+
+    private void replayDrawerOperation(JSONObject jsonDrawerOperation, HashMap<String, Integer> drawerPositions) {
+        drawerPositions.put(jsonDrawerOperation.getString("operationName"), this.jsonDrawerOperations.length());
+        this.jsonDrawerOperations.put(jsonDrawerOperation);
     }
 }
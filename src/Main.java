@@ -1,10 +1,19 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 public class Main {
-    public static MainSystem mainSystem = new MainSystem();
+    public static String DATA_PATH = "src\\data";
+    public static String SNAPSHOT_FILENAME = "snapshot.bin";
+    public static String SNAPSHOT_PATH = DATA_PATH + "\\" + SNAPSHOT_FILENAME;
+    public static MainSystem mainSystem;
+    private static String snapshotPath = SNAPSHOT_PATH;
     public static String DATE_FORMAT = "yyyy-MM-dd HH:mm";
     public static int INTELLIGENCE_GATHERING = 1;
     public static int ATTACK_OPERATION = 2;
@@ -19,13 +28,121 @@ public class Main {
     public static String CREATE_FROM_DRAWER = "8";
     public static String GET_UNPREPARED_OPS = "9";
     public static String EXIT = "10";
-
-    public static void main(String[] args) {
+    public static long GROUP_COMMIT_INTERVAL_MILLIS = 1000;
+    public static long READINESS_TICK_MILLIS = 1000;
+    public static String BATCH_FLAG = "--batch";
+    public static String API_FLAG = "--api";
+    public static String DATA_DIR_FLAG = "--data-dir";
+    public static int DEFAULT_API_PORT = 8080;
+
+    // A single Scanner for the whole session, a new one per prompt would lose the input
+    // the previous one had already buffered when stdin is piped
+    private static final Scanner CONSOLE = new Scanner(System.in);
+    public static MenuInput menuInput = prompt -> {
+        System.out.print(prompt);
+        return CONSOLE.nextLine();
+    };
+
+    // "--batch [file] [--data-dir dir]" runs the commands in the file (or stdin when missing or "-")
+    // without prompts. The commands change the data in dir, without --data-dir they run against a
+    // scratch copy of the live data that is deleted afterwards, so a replay never touches src\data.
+    // "--api [port]" also serves the HTTP API on localhost while the menu runs
+    public static void main(String[] args) throws IOException {
+        Metrics.registerMBean();
+        if (args.length > 0 && args[0].equals(BATCH_FLAG)) {
+            runBatch(args);
+            return;
+        }
+        mainSystem = new MainSystem(true, SNAPSHOT_PATH);
+        mainSystem.enableGroupCommit(GROUP_COMMIT_INTERVAL_MILLIS);
+        ApiServer apiServer = null;
+        if (args.length > 0 && args[0].equals(API_FLAG)) {
+            if (System.getProperty(ApiServer.NODELAY_PROPERTY) == null) {
+                System.setProperty(ApiServer.NODELAY_PROPERTY, "true");
+            }
+            apiServer = ApiServer.onLocalhost(mainSystem, args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_API_PORT);
+            apiServer.start();
+            System.out.println("API listening on http://localhost:" + apiServer.getPort());
+        }
+        mainSystem.enableReadinessScheduler(new ReadinessListener() {
+            public void enteredWindowUnprepared(Operation operation) {
+                System.out.println("[alert] Operation " + operation.getTaskInformation().getOperationName()
+                        + " is in its readiness window and is not ready");
+            }
+        }, READINESS_TICK_MILLIS);
         showMenu();
         while (handleMenuChooser()) {
             System.out.println();
             showMenu();
         }
+        if (apiServer != null) {
+            apiServer.stop();
+        }
+        shutdown();
+    }
+
+    private static void runBatch(String[] args) throws IOException {
+        String source = "-";
+        String dataDirectory = null;
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].equals(DATA_DIR_FLAG)) {
+                source = args[i];
+            } else if (i + 1 < args.length) {
+                dataDirectory = args[++i];
+            } else {
+                throw new IllegalArgumentException(DATA_DIR_FLAG + " needs a directory");
+            }
+        }
+
+        Path scratch = null;
+        if (dataDirectory == null) {
+            scratch = copyLiveData();
+            dataDirectory = scratch.toString();
+        }
+        snapshotPath = new File(dataDirectory, SNAPSHOT_FILENAME).getPath();
+        mainSystem = new MainSystem(true, snapshotPath, dataDirectory);
+        mainSystem.enableGroupCommit(GROUP_COMMIT_INTERVAL_MILLIS);
+        try {
+            BatchRunner.run(source);
+            shutdown();
+        } finally {
+            if (scratch != null) {
+                deleteDirectory(scratch);
+            }
+        }
+    }
+
+    // Copies the data files, snapshot and journal included, into a new temp directory
+    private static Path copyLiveData() throws IOException {
+        Path scratch = Files.createTempDirectory("shachar-batch");
+        Path live = Path.of(DATA_PATH);
+        if (Files.isDirectory(live)) {
+            try (Stream<Path> files = Files.list(live)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (Files.isRegularFile(file)) {
+                        Files.copy(file, scratch.resolve(file.getFileName()));
+                    }
+                }
+            }
+        }
+        return scratch;
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    public static void shutdown() {
+        // Export first: it empties the journal, and the snapshot remembers the JSON files it
+        // matches. If the snapshot is cut short the next start falls back to the JSON files
+        mainSystem.exportToJson();
+        mainSystem.saveSnapshot(snapshotPath);
+        mainSystem.close();
     }
 
     public static void showMenu() {
@@ -43,8 +160,7 @@ public class Main {
     }
 
     public static boolean handleMenuChooser() {
-        Scanner sc = new Scanner(System.in);
-        String choice = sc.nextLine();
+        String choice = menuInput.nextLine("");
         if (choice.equals(ADD_AIRCRAFT)) {
             handleAddAircraft();
             return true;
@@ -85,9 +201,7 @@ public class Main {
     }
 
     public static void handleAddAircraft() {
-        Scanner sc = new Scanner(System.in);
-        System.out.print("Enter aircraft ID: ");
-        String input = sc.nextLine();
+        String input = menuInput.nextLine("Enter aircraft ID: ");
         try {
             int id = Integer.parseInt(input);
             if (!mainSystem.addAircraft(id)) {
@@ -99,19 +213,15 @@ public class Main {
     }
 
     public static TaskInformation getTaskInformation() {
-        Scanner sc = new Scanner(System.in);
-        System.out.print("Enter operation name: ");
-        String operationName = sc.nextLine();
+        String operationName = menuInput.nextLine("Enter operation name: ");
         if (mainSystem.operationNameExists(operationName)) {
             System.out.println("Operation name already exists");
             return null;
         }
 
-        System.out.print("Enter task description: ");
-        String taskDescription = sc.nextLine();
+        String taskDescription = menuInput.nextLine("Enter task description: ");
 
-        System.out.print("Enter number of required aircrafts: ");
-        String input = sc.nextLine();
+        String input = menuInput.nextLine("Enter number of required aircrafts: ");
         int count;
         try {
             count = Integer.parseInt(input);
@@ -127,15 +237,12 @@ public class Main {
     }
 
     public static LocalDateTime[] getDates(boolean isForOperation) {
-        Scanner sc = new Scanner(System.in);
-        System.out.print("Enter starting date (yyyy-MM-dd HH:mm format): ");
-        String startString = sc.nextLine();
+        String startString = menuInput.nextLine("Enter starting date (yyyy-MM-dd HH:mm format): ");
         if (!Utils.isValidDateString(startString, DATE_FORMAT)) {
             System.out.println("Invalid date");
             return null;
         }
-        System.out.print("Enter ending date: ");
-        String endString = sc.nextLine();
+        String endString = menuInput.nextLine("Enter ending date: ");
         if (!Utils.isValidDateString(endString, DATE_FORMAT)) {
             System.out.println("Invalid date");
             return null;
@@ -182,9 +289,7 @@ public class Main {
     }
 
     public static int getOperationType() {
-        Scanner sc = new Scanner(System.in);
-        System.out.print("Enter operation type (1 - Intelligence gathering, 2 - Attack): ");
-        String input = sc.nextLine();
+        String input = menuInput.nextLine("Enter operation type (1 - Intelligence gathering, 2 - Attack): ");
         int type;
         try {
             type = Integer.parseInt(input);
@@ -201,11 +306,8 @@ public class Main {
 
     public static void handleIntelligenceGatheringChoice(LocalDateTime start, LocalDateTime end,
                                                          TaskInformation taskInformation) {
-        Scanner sc = new Scanner(System.in);
-        System.out.print("Enter camera type: ");
-        String cameraType = sc.nextLine();
-        System.out.print("Enter flight route: ");
-        String flightRoute = sc.nextLine();
+        String cameraType = menuInput.nextLine("Enter camera type: ");
+        String flightRoute = menuInput.nextLine("Enter flight route (x,y -> x,y -> ...): ");
 
         Operation op = new IntelligenceGatheringOperation(taskInformation, cameraType, flightRoute,
                 start, end);
@@ -215,13 +317,9 @@ public class Main {
     }
 
     public static void handleAttackChoice(LocalDateTime start, LocalDateTime end, TaskInformation TI) {
-        Scanner sc = new Scanner(System.in);
-        System.out.print("Enter armament type: ");
-        String armamentType = sc.nextLine();
+        String armamentType = menuInput.nextLine("Enter armament type: ");
 
-        System.out.println("Enter attack location:");
-        System.out.print("Enter x: ");
-        String input = sc.nextLine();
+        String input = menuInput.nextLine("Enter attack location:" + System.lineSeparator() + "Enter x: ");
         double x;
         try {
             x = Double.parseDouble(input);
@@ -230,8 +328,7 @@ public class Main {
             return;
         }
 
-        System.out.print("Enter y: ");
-        input = sc.nextLine();
+        input = menuInput.nextLine("Enter y: ");
         double y;
         try {
             y = Double.parseDouble(input);
@@ -261,9 +358,7 @@ public class Main {
     }
 
     public static void handleCheckOperationReady() {
-        Scanner sc = new Scanner(System.in);
-        System.out.print("Enter operation name: ");
-        String operationName = sc.nextLine();
+        String operationName = menuInput.nextLine("Enter operation name: ");
         Operation op = mainSystem.getOperationByName(operationName);
         if (op == null) {
             System.out.println("Operation does not exists");
@@ -277,9 +372,7 @@ public class Main {
     }
 
     public static void handleChangeOperationTime() {
-        Scanner sc = new Scanner(System.in);
-        System.out.print("Enter operation name: ");
-        String operationName = sc.nextLine();
+        String operationName = menuInput.nextLine("Enter operation name: ");
         Operation op = mainSystem.getOperationByName(operationName);
         if (op == null) {
             System.out.println("Operation does not exists");
@@ -294,15 +387,12 @@ public class Main {
     }
 
     public static void handleAddIntelligenceDrawerOperation() {
-        Scanner sc = new Scanner(System.in);
         TaskInformation TI = getTaskInformation();
         if (TI == null) {
             return;
         }
-        System.out.print("Enter camera type: ");
-        String cameraType = sc.nextLine();
-        System.out.print("Enter flight route: ");
-        String flightRoute = sc.nextLine();
+        String cameraType = menuInput.nextLine("Enter camera type: ");
+        String flightRoute = menuInput.nextLine("Enter flight route (x,y -> x,y -> ...): ");
 
         mainSystem.addIntelligenceDrawerOperation(TI, cameraType, flightRoute);
     }
@@ -317,9 +407,7 @@ public class Main {
     }
 
     public static void handleCreateFromDrawerOperation() {
-        Scanner sc = new Scanner(System.in);
-        System.out.print("Enter operation name: ");
-        String operationName = sc.nextLine();
+        String operationName = menuInput.nextLine("Enter operation name: ");
         if (!mainSystem.drawerOperationNameExists(operationName)) {
             System.out.println("Drawer operation name does not exists");
             return;
@@ -347,22 +435,17 @@ public class Main {
         }
 
         if (type == INTELLIGENCE_GATHERING) {
-            System.out.print("Enter camera type: ");
-            String cameraType = sc.nextLine();
-            System.out.print("Enter flight route: ");
-            String flightRoute = sc.nextLine();
+            String cameraType = menuInput.nextLine("Enter camera type: ");
+            String flightRoute = menuInput.nextLine("Enter flight route (x,y -> x,y -> ...): ");
 
             if (!mainSystem.createIntelligenceGatheringOperation(operationName, dates[0], dates[1],
                     cameraType, flightRoute)) {
                 System.out.println("Cannot create operation");
             }
         } else {
-            System.out.print("Enter armament type: ");
-            String armamentType = sc.nextLine();
+            String armamentType = menuInput.nextLine("Enter armament type: ");
 
-            System.out.println("Enter attack location:");
-            System.out.print("Enter x: ");
-            String input = sc.nextLine();
+            String input = menuInput.nextLine("Enter attack location:" + System.lineSeparator() + "Enter x: ");
             double x;
             try {
                 x = Double.parseDouble(input);
@@ -371,8 +454,7 @@ public class Main {
                 return;
             }
 
-            System.out.print("Enter y: ");
-            input = sc.nextLine();
+            input = menuInput.nextLine("Enter y: ");
             double y;
             try {
                 y = Double.parseDouble(input);
@@ -390,9 +472,7 @@ public class Main {
     }
 
     public static void handleGetUnpreparedOperations() {
-        Scanner sc = new Scanner(System.in);
-        System.out.print("Enter X hours in advance: ");
-        String input = sc.nextLine();
+        String input = menuInput.nextLine("Enter X hours in advance: ");
         int xHours;
         try {
             xHours = Integer.parseInt(input);
@@ -405,6 +485,9 @@ public class Main {
             return;
         }
 
-        mainSystem.getAllUnpreparedOperations(xHours);
+        System.out.println("Operations:");
+        for (Operation op : mainSystem.getAllUnpreparedOperations(xHours)) {
+            System.out.println(op.getTaskInformation().getOperationName());
+        }
     }
 }
@@ -1,182 +1,884 @@
+import java.io.IOException;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Safe to share between operator threads. The lock guards the structure: the aircraft
+// directory, the operation list, the registry and the time index. Queries share the read
+// lock, while adding or retiming operations and aircraft takes the write lock. Assigning an
+// existing aircraft to an existing operation only needs the read lock plus the monitors
+// of that aircraft and that operation, always taken in this order, so assignments
+// touching different aircraft and operations run in parallel.
+// Every mutation also publishes a new SystemSnapshot, which readers get without any lock
 public class MainSystem {
-    private final HashSet<Aircraft> aircrafts;
-    private final List<DrawerOperation> drawerOperations;
+    // Attack locations are bucketed in squares of this size, about the radius of a typical query
+    private static final double ATTACK_LOCATION_CELL_SIZE = 10;
+    // Batches a change feed subscriber may fall behind by before it is dropped
+    private static final int CHANGE_FEED_BUFFER = 1024;
+
+    // Latencies of the public methods include waiting for the lock
+    private static final LongAdder ASSIGNMENT_ATTEMPTS = Metrics.counter("assignment.attempts");
+    private static final LongAdder ASSIGNMENTS = Metrics.counter("assignment.assigned");
+    private static final LatencyHistogram LOAD_LATENCY = Metrics.histogram("mainSystem.load");
+    private static final LatencyHistogram ADD_AIRCRAFT_LATENCY = Metrics.histogram("mainSystem.addAircraft");
+    private static final LatencyHistogram ADD_OPERATION_LATENCY = Metrics.histogram("mainSystem.addOperation");
+    private static final LatencyHistogram IMPORT_BATCH_LATENCY = Metrics.histogram("mainSystem.importBatch");
+    private static final LatencyHistogram ASSIGN_AIRCRAFT_TO_OPERATION_LATENCY =
+            Metrics.histogram("mainSystem.assignAircraftToOperation");
+    private static final LatencyHistogram CHANGE_OPERATION_TIME_LATENCY =
+            Metrics.histogram("mainSystem.changeOperationTime");
+    private static final LatencyHistogram ASSIGN_ALL_AIRCRAFTS_LATENCY =
+            Metrics.histogram("mainSystem.assignAllAircrafts");
+    private static final LatencyHistogram REASSIGN_ALL_AIRCRAFTS_LATENCY =
+            Metrics.histogram("mainSystem.reassignAllAircrafts");
+    private static final LatencyHistogram CREATE_ATTACK_OPERATION_LATENCY =
+            Metrics.histogram("mainSystem.createAttackOperation");
+    private static final LatencyHistogram CREATE_INTELLIGENCE_GATHERING_OPERATION_LATENCY =
+            Metrics.histogram("mainSystem.createIntelligenceGatheringOperation");
+    private static final LatencyHistogram GET_ALL_OPERATIONS_WITHIN_TIME_LATENCY =
+            Metrics.histogram("mainSystem.getAllOperationsWithinTime");
+    private static final LatencyHistogram GET_ALL_UNPREPARED_OPERATIONS_LATENCY =
+            Metrics.histogram("mainSystem.getAllUnpreparedOperations");
+    private static final LatencyHistogram GET_ATTACK_OPERATIONS_WITHIN_RADIUS_LATENCY =
+            Metrics.histogram("mainSystem.getAttackOperationsWithinRadius");
+    private static final LatencyHistogram GET_INTELLIGENCE_OPERATIONS_CROSSING_BOUNDS_LATENCY =
+            Metrics.histogram("mainSystem.getIntelligenceOperationsCrossingBounds");
+
+    private final MinuteClock clock;
+    private final ReadWriteLock lock;
+    private final AircraftDirectory aircrafts;
     private final List<Operation> operations;
+    private final OperationRegistry registry;
+    private final OperationIntervalTree operationTimeIndex;
+    private final AttackLocationIndex attackLocationIndex;
+    private final RouteIndex routeIndex;
     private final JsonHandler jsonHandler;
+    private final Object snapshotLock;
+    private volatile SystemSnapshot snapshot;
+    private final ChangeFeed changeFeed;
+    // Label and held back events of the write-locked mutation in progress, so nested
+    // calls such as createAttackOperation -> addOperation publish a single batch
+    private String pendingMutation;
+    private final List<ChangeEvent> pendingChanges;
+    // Set by the write-locked mutations that add or remove drawer operations, the next
+    // snapshot version takes the new drawer operations
+    private boolean drawerOperationsChanged;
+    private AssignmentEngine assignmentEngine;
+    private volatile ReadinessScheduler readinessScheduler;
+    private ScheduledExecutorService readinessTicker;
 
     public MainSystem() {
-        this.aircrafts = new HashSet<>();
-        this.operations = new ArrayList<>();
-        this.drawerOperations = new ArrayList<>();
-        this.jsonHandler = new JsonHandler();
-        setDataFromJson();
+        this(false);
+    }
+
+    public MainSystem(boolean useJournal) {
+        this(useJournal, null);
+    }
+
+    // With a snapshot file the system cold-starts from it instead of parsing the JSON files
+    public MainSystem(boolean useJournal, String snapshotFilename) {
+        this(useJournal, snapshotFilename, null);
+    }
 
+    // A data directory replaces the bundled data files, used to keep benchmarks away from src/data
+    public MainSystem(boolean useJournal, String snapshotFilename, String dataDirectory) {
+        this(useJournal, snapshotFilename, dataDirectory, Clock.systemDefaultZone());
+    }
+
+    // The clock decides readiness and the time windows of every operation in this system,
+    // a fixed clock makes checks and replays independent of the wall clock
+    public MainSystem(boolean useJournal, String snapshotFilename, String dataDirectory, Clock clock) {
+        this.clock = new MinuteClock(clock);
+        this.lock = new ReentrantReadWriteLock();
+        this.aircrafts = new AircraftDirectory();
+        this.operations = new ArrayList<>();
+        this.registry = new OperationRegistry();
+        this.operationTimeIndex = new OperationIntervalTree();
+        this.attackLocationIndex = new AttackLocationIndex(ATTACK_LOCATION_CELL_SIZE);
+        this.routeIndex = new RouteIndex();
+        this.jsonHandler = new JsonHandler(this.registry, useJournal, dataDirectory);
+        setData(snapshotFilename);
+        for (Operation operation : this.operations) {
+            operation.setClock(this.clock);
+            this.registry.addOperation(operation);
+            indexOperation(operation);
+        }
+        this.assignmentEngine = new GreedyAssignmentEngine();
+        this.snapshotLock = new Object();
+        this.snapshot = SystemSnapshot.empty();
+        this.changeFeed = new ChangeFeed(CHANGE_FEED_BUFFER);
+        this.pendingChanges = new ArrayList<>();
+        int[] aircraftIds = new int[this.aircrafts.size()];
+        int i = 0;
         for (Aircraft aircraft : this.aircrafts) {
-            tryAddAircraftToOperations(aircraft);
+            aircraftIds[i++] = aircraft.getId();
+        }
+        this.drawerOperationsChanged = !this.registry.getDrawerOperations().isEmpty();
+        publish("load", this.operations, aircraftIds);
+        if (this.drawerOperationsChanged) {
+            publishDrawerChanges("load", List.of());
+        }
+
+        // Every mutation runs its assignment pass before it is persisted, so a consistent
+        // stored state already is the result of a full pass
+        if (!syncAircraftSchedules()) {
+            assignAllAircrafts();
         }
     }
 
-    public void setDataFromJson() {
-        this.jsonHandler.setDataFromAircraftJson(this.aircrafts);
-        this.jsonHandler.setDataFromDrawerOperationsJson(this.drawerOperations);
-        this.jsonHandler.setDataFromOperationJson(this.operations);
+    public void setData(String snapshotFilename) {
+        long started = System.nanoTime();
+        List<DrawerOperation> drawerOperations = new ArrayList<>();
+        if (snapshotFilename == null || !this.jsonHandler.loadSnapshot(snapshotFilename, this.aircrafts,
+                drawerOperations, this.operations)) {
+            this.jsonHandler.loadJson(this.aircrafts, drawerOperations, this.operations);
+        }
+        for (DrawerOperation drawerOperation : drawerOperations) {
+            this.registry.addDrawerOperation(drawerOperation);
+        }
+        LOAD_LATENCY.recordSince(started);
     }
 
-    public boolean hasAircraftId(int id) {
-        for (Aircraft aircraft : this.aircrafts) {
-            if (aircraft.getId() == id) {
-                return true;
+    // Puts the persisted assignments into the aircraft schedules. An assignment that
+    // collides with an earlier one of the same aircraft is dropped. Returns whether the
+    // stored assignments were consistent: known aircraft, no overlaps, no overfull operation
+    public boolean syncAircraftSchedules() {
+        this.lock.writeLock().lock();
+        try {
+            boolean consistent = true;
+            List<Operation> changedOperations = new ArrayList<>();
+            for (Operation operation : this.operations) {
+                boolean changed = false;
+                if (operation.getAssignedAircrafts().size() > operation.getTaskInformation().getNumOfAircrafts()) {
+                    consistent = false;
+                }
+                AircraftIdSet assignedAircrafts = operation.getAssignedAircrafts().copy();
+                for (int i = 0; i < assignedAircrafts.size(); i++) {
+                    int id = assignedAircrafts.get(i);
+                    Aircraft aircraft = this.aircrafts.get(id);
+                    if (aircraft == null) {
+                        consistent = false;
+                        continue;
+                    }
+                    if (aircraft.operationAssignmentOverlaps(operation)) {
+                        operation.getAssignedAircrafts().remove(id);
+                        changed = true;
+                    } else {
+                        aircraft.addOperationToList(operation);
+                    }
+                }
+                if (changed) {
+                    this.jsonHandler.addOperationToJson(operation);
+                    changedOperations.add(operation);
+                    consistent = false;
+                }
             }
+            publish("syncAircraftSchedules", changedOperations);
+            return consistent;
+        } finally {
+            this.lock.writeLock().unlock();
         }
-        return false;
     }
 
-    public boolean addAircraft(int id) {
-        if (hasAircraftId(id)) {
-            return false;
+    public void exportToJson() {
+        this.jsonHandler.exportToJson();
+    }
+
+    // A snapshot is only used while the JSON files still match it, so the pending writes go out
+    // first. With a journal call exportToJson before, a snapshot is refused while the journal has records
+    public void saveSnapshot(String snapshotFilename) {
+        this.lock.writeLock().lock();
+        try {
+            this.jsonHandler.flush();
+            BinarySnapshot.write(snapshotFilename, this.jsonHandler.dataFingerprint(), this.aircrafts,
+                    this.registry.getDrawerOperations(), this.operations);
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            this.lock.writeLock().unlock();
         }
+    }
 
-        Aircraft aircraft = new Aircraft(id);
-        this.aircrafts.add(aircraft);
-        this.jsonHandler.addAircraftToJson(id, this.aircrafts);
-        tryAddAircraftToOperations(aircraft);
-        return true;
+    public void enableGroupCommit(long intervalMillis) {
+        this.jsonHandler.enableGroupCommit(intervalMillis);
+    }
+
+    public void flush() {
+        this.jsonHandler.flush();
+    }
+
+    // Pushes readiness window events to the listener instead of having callers poll
+    // getAllUnpreparedOperations. A daemon thread advances the scheduler every tick and
+    // also delivers the callbacks, outside of the system locks
+    public void enableReadinessScheduler(ReadinessListener listener, long tickMillis) {
+        this.lock.writeLock().lock();
+        try {
+            if (this.readinessScheduler != null) {
+                return;
+            }
+            this.readinessTicker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "readiness-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ReadinessScheduler readinessScheduler = new ReadinessScheduler(listener, this.readinessTicker);
+            readinessScheduler.operationsChanged(this.operations, this.clock.nowMinute());
+            this.readinessScheduler = readinessScheduler;
+            this.readinessTicker.scheduleWithFixedDelay(this::advanceReadinessScheduler, tickMillis, tickMillis,
+                    TimeUnit.MILLISECONDS);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void advanceReadinessScheduler() {
+        long now = this.clock.nowMinute();
+        if (this.readinessScheduler.nextEventMinute() > now) {
+            return;
+        }
+        this.lock.writeLock().lock();
+        try {
+            this.readinessScheduler.advance(now);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void close() {
+        if (this.readinessTicker != null) {
+            this.readinessTicker.shutdown();
+        }
+        this.changeFeed.close();
+        this.jsonHandler.close();
+    }
+
+    public boolean hasAircraftId(int id) {
+        this.lock.readLock().lock();
+        try {
+            return this.aircrafts.contains(id);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public boolean addAircraft(int id) {
+        long started = System.nanoTime();
+        this.lock.writeLock().lock();
+        try {
+            if (hasAircraftId(id)) {
+                return false;
+            }
+
+            Aircraft aircraft = new Aircraft(id);
+            this.aircrafts.add(aircraft);
+            this.jsonHandler.addAircraftToJson(id, this.aircrafts);
+            publish("addAircraft", assignToOperations(aircraft), id);
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+            ADD_AIRCRAFT_LATENCY.recordSince(started);
+        }
     }
 
     public boolean addOperation(Operation operation) {
-        // Checking if the operation already exists (Check by operation name)
-        if (operationNameExists(operation.getTaskInformation().getOperationName())) {
-            return false;
+        long started = System.nanoTime();
+        this.lock.writeLock().lock();
+        boolean outermost = beginMutation("addOperation");
+        try {
+            // Checking if the operation already exists (Check by operation name)
+            if (operationNameExists(operation.getTaskInformation().getOperationName())) {
+                return false;
+            }
+
+            operation.setClock(this.clock);
+            this.operations.add(operation);
+            this.registry.addOperation(operation);
+            indexOperation(operation);
+            assignAllPossibleAircrafts(operation);
+            return true;
+        } finally {
+            if (outermost) {
+                endMutation();
+            }
+            this.lock.writeLock().unlock();
+            ADD_OPERATION_LATENCY.recordSince(started);
         }
+    }
 
-        this.operations.add(operation);
-        assignAllPossibleAircrafts(operation);
-        return true;
+    // Adds many items with one validation pass, one assignment pass and one write, instead
+    // of a pass and a write per item. Items that clash with the system or with an earlier
+    // item of the batch are skipped and reported, the rest is imported. Aircraft go first,
+    // then drawer operations, then operations
+    public ImportResult importBatch(Collection<Integer> aircraftIds, Collection<Operation> operations,
+                                    Collection<DrawerOperation> drawerOperations) {
+        long started = System.nanoTime();
+        this.lock.writeLock().lock();
+        beginMutation("importBatch");
+        try {
+            ImportResult result = new ImportResult();
+            List<Aircraft> newAircrafts = new ArrayList<>();
+            for (int id : aircraftIds) {
+                if (this.aircrafts.contains(id)) {
+                    result.reject("aircraft " + id, "aircraft id already exists");
+                    continue;
+                }
+                Aircraft aircraft = new Aircraft(id);
+                this.aircrafts.add(aircraft);
+                newAircrafts.add(aircraft);
+                result.aircraftImported();
+            }
+
+            List<DrawerOperation> newDrawerOperations = new ArrayList<>();
+            for (DrawerOperation drawerOperation : drawerOperations) {
+                String operationName = drawerOperation.getTaskInformation().getOperationName();
+                if (this.registry.nameExists(operationName)) {
+                    result.reject(operationName, "operation name already exists");
+                    continue;
+                }
+                this.registry.addDrawerOperation(drawerOperation);
+                newDrawerOperations.add(drawerOperation);
+                this.drawerOperationsChanged = true;
+                if (this.changeFeed.hasSubscribers()) {
+                    this.pendingChanges.add(ChangeEvent.drawerOperationAdded(drawerOperation));
+                }
+                result.drawerOperationImported();
+            }
+
+            List<Operation> newOperations = new ArrayList<>();
+            for (Operation operation : operations) {
+                String operationName = operation.getTaskInformation().getOperationName();
+                if (this.registry.nameExists(operationName)) {
+                    result.reject(operationName, "operation name already exists");
+                    continue;
+                }
+                if (!operation.getEnd().isAfter(operation.getStart())) {
+                    result.reject(operationName, "operation ends before it starts");
+                    continue;
+                }
+                operation.setClock(this.clock);
+                this.operations.add(operation);
+                this.registry.addOperation(operation);
+                indexOperation(operation);
+                newOperations.add(operation);
+                result.operationImported();
+            }
+
+            // Same aircraft/operation order as assignAllAircrafts, restricted to the pairs
+            // with at least one new side. Aircraft already in the system can only join the
+            // new operations
+            HashSet<Operation> changedOperations = new HashSet<>(newOperations);
+            HashSet<Aircraft> addedAircrafts = new HashSet<>(newAircrafts);
+            for (Aircraft aircraft : this.aircrafts) {
+                List<Operation> candidates = addedAircrafts.contains(aircraft) ? this.operations : newOperations;
+                for (Operation operation : candidates) {
+                    if (assignWithoutPersisting(aircraft, operation)) {
+                        changedOperations.add(operation);
+                    }
+                }
+            }
+
+            // Persist in registry order so new operations are appended in the order they were added
+            List<Operation> persistedOperations = new ArrayList<>(changedOperations);
+            persistedOperations.sort(Comparator.comparingInt(this.registry::getOperationOrder));
+            int[] newAircraftIds = new int[newAircrafts.size()];
+            for (int i = 0; i < newAircraftIds.length; i++) {
+                newAircraftIds[i] = newAircrafts.get(i).getId();
+            }
+            this.jsonHandler.importToJson(newAircraftIds, newDrawerOperations, persistedOperations);
+            publish("importBatch", persistedOperations, newAircraftIds);
+            return result;
+        } finally {
+            endMutation();
+            this.lock.writeLock().unlock();
+            IMPORT_BATCH_LATENCY.recordSince(started);
+        }
     }
 
+    // Only the ids count, the registered aircraft and operation are the ones assigned
     public void assignAircraftToOperation(Aircraft aircraft, Operation operation) {
+        assignAircraftToOperation(aircraft.getId(), operation.getTaskInformation().getOperationName());
+    }
+
+    // Runs under the read lock and the monitors of the aircraft and the operation, so
+    // assignments of different aircraft to different operations run in parallel. Returns
+    // false when either is unknown or the aircraft cannot take the operation
+    public boolean assignAircraftToOperation(int aircraftId, String operationName) {
+        long started = System.nanoTime();
+        this.lock.readLock().lock();
+        try {
+            Aircraft aircraft = this.aircrafts.get(aircraftId);
+            Operation operation = this.registry.getOperation(operationName);
+            if (aircraft == null || operation == null) {
+                return false;
+            }
+            synchronized (aircraft) {
+                synchronized (operation) {
+                    if (!assign(aircraft, operation)) {
+                        return false;
+                    }
+                    publish("assignAircraftToOperation", List.of(operation));
+                    return true;
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+            ASSIGN_AIRCRAFT_TO_OPERATION_LATENCY.recordSince(started);
+        }
+    }
+
+    // Callers hold either the write lock or the monitors of both objects
+    private boolean assign(Aircraft aircraft, Operation operation) {
+        if (!assignWithoutPersisting(aircraft, operation)) {
+            return false;
+        }
+        this.jsonHandler.addAssignmentToJson(operation, aircraft.getId());
+        return true;
+    }
+
+    private boolean assignWithoutPersisting(Aircraft aircraft, Operation operation) {
+        ASSIGNMENT_ATTEMPTS.increment();
         if (operation.cannotAssignAircraftToOperation(aircraft)
                 || aircraft.operationAssignmentOverlaps(operation)) {
-            return;
+            return false;
         }
 
         operation.assignAircraft(aircraft.getId());
         aircraft.addOperationToList(operation);
-        this.jsonHandler.addOperationToJson(operation);
+        ASSIGNMENTS.increment();
+        return true;
+    }
+
+    // Lock free, the returned snapshot never changes
+    public SystemSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
+    // Every mutation as one ChangeBatch, in snapshot version order. Subscribers that fall
+    // more than CHANGE_FEED_BUFFER batches behind are dropped and resync from getSnapshot()
+    public Flow.Publisher<ChangeBatch> getChangeFeed() {
+        return this.changeFeed;
+    }
+
+    // Publishes the next snapshot version with the current state of the given operations
+    // and the added aircraft, and the batch of the mutation to the change feed. Callers
+    // hold the locks that keep those operations still
+    private void publish(String mutation, Collection<Operation> changedOperations, int... addedAircraftIds) {
+        if (changedOperations.isEmpty() && addedAircraftIds.length == 0) {
+            return;
+        }
+        Map<Integer, OperationView> views = new HashMap<>();
+        for (Operation operation : changedOperations) {
+            views.put(this.registry.getOperationOrder(operation), OperationView.of(operation));
+        }
+        List<DrawerOperation> drawerOperations = null;
+        if (this.drawerOperationsChanged) {
+            drawerOperations = new ArrayList<>(this.registry.getDrawerOperations());
+            this.drawerOperationsChanged = false;
+        }
+        synchronized (this.snapshotLock) {
+            int previousOperationCount = this.snapshot.getOperationCount();
+            this.snapshot = this.snapshot.withChanges(addedAircraftIds, views, drawerOperations);
+            // Offered under the lock, so batches reach the feed in version order
+            if (this.changeFeed.hasSubscribers()) {
+                List<ChangeEvent> events = new ArrayList<>(addedAircraftIds.length + views.size());
+                for (int id : addedAircraftIds) {
+                    events.add(ChangeEvent.aircraftAdded(id));
+                }
+                // Only the write-locked mutations hold events back
+                if (this.pendingMutation != null) {
+                    mutation = this.pendingMutation;
+                    events.addAll(this.pendingChanges);
+                    this.pendingChanges.clear();
+                }
+                List<Integer> orders = new ArrayList<>(views.keySet());
+                orders.sort(null);
+                for (int order : orders) {
+                    OperationView view = views.get(order);
+                    events.add(order >= previousOperationCount ? ChangeEvent.operationAdded(view)
+                            : ChangeEvent.operationChanged(view));
+                }
+                this.changeFeed.offer(new ChangeBatch(this.snapshot.getVersion(), mutation, events));
+            }
+        }
+        ReadinessScheduler readinessScheduler = this.readinessScheduler;
+        if (readinessScheduler != null && !changedOperations.isEmpty()) {
+            readinessScheduler.operationsChanged(changedOperations, this.clock.nowMinute());
+        }
+    }
+
+    // Publishes the next snapshot version with the current drawer operations, for mutations
+    // that changed nothing else. Callers hold the write lock
+    private void publishDrawerChanges(String mutation, List<ChangeEvent> events) {
+        List<DrawerOperation> drawerOperations = new ArrayList<>(this.registry.getDrawerOperations());
+        this.drawerOperationsChanged = false;
+        synchronized (this.snapshotLock) {
+            this.snapshot = this.snapshot.withChanges(new int[0], Map.of(), drawerOperations);
+            this.changeFeed.offer(new ChangeBatch(this.snapshot.getVersion(), mutation, events));
+        }
+    }
+
+    // Makes the nested publish calls of a write-locked mutation use its label. Returns
+    // false when an outer mutation already did, only the outermost one ends it
+    private boolean beginMutation(String mutation) {
+        if (this.pendingMutation != null) {
+            return false;
+        }
+        this.pendingMutation = mutation;
+        return true;
+    }
+
+    // Publishes the drawer changes and held back events that no snapshot change picked up
+    private void endMutation() {
+        if (this.drawerOperationsChanged) {
+            publishDrawerChanges(this.pendingMutation, new ArrayList<>(this.pendingChanges));
+        }
+        this.pendingChanges.clear();
+        this.pendingMutation = null;
     }
 
     public Operation getOperationByName(String operationName) {
-        for (Operation op : this.operations) {
-            if (op.getTaskInformation().getOperationName().equals(operationName)) {
-                return op;
+        this.lock.readLock().lock();
+        try {
+            return this.registry.getOperation(operationName);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    // A private copy taken while no assignment or retiming touches the operation, safe to
+    // read or serialize on any thread
+    public Operation getOperationCopy(Operation op) {
+        this.lock.readLock().lock();
+        try {
+            synchronized (op) {
+                return op.copy();
             }
+        } finally {
+            this.lock.readLock().unlock();
         }
-        return null;
     }
 
     public boolean operationNameExists(String operationName) {
-        for (Operation op : this.operations) {
-            if (op.getTaskInformation().getOperationName()
-                    .equals(operationName)) {
-                return true;
-            }
+        this.lock.readLock().lock();
+        try {
+            return this.registry.nameExists(operationName);
+        } finally {
+            this.lock.readLock().unlock();
         }
-        for (DrawerOperation op : this.drawerOperations) {
-            if (op.getTaskInformation().getOperationName()
-                    .equals(operationName)) {
-                return true;
-            }
+    }
+
+    // Attack operations at most radius away from (x, y) that overlap the window (start, end)
+    public List<AttackOperation> getAttackOperationsWithinRadius(double x, double y, double radius,
+                                                                 LocalDateTime start, LocalDateTime end) {
+        long started = System.nanoTime();
+        this.lock.readLock().lock();
+        try {
+            return this.attackLocationIndex.queryRadius(x, y, radius, start, end);
+        } finally {
+            this.lock.readLock().unlock();
+            GET_ATTACK_OPERATIONS_WITHIN_RADIUS_LATENCY.recordSince(started);
         }
-        return false;
     }
 
-    public List<Operation> getAllOperationsWithinTime(LocalDateTime start, LocalDateTime end) {
-        List<Operation> allOperations = new ArrayList<>();
-        for (Operation op : this.operations) {
-            if (start.isBefore(op.getStart()) && end.isAfter(op.getEnd())) {
-                allOperations.add(op);
+    // Attack operations inside the box (edges included) that overlap the window (start, end)
+    public List<AttackOperation> getAttackOperationsWithinBounds(double minX, double minY, double maxX, double maxY,
+                                                                 LocalDateTime start, LocalDateTime end) {
+        this.lock.readLock().lock();
+        try {
+            return this.attackLocationIndex.queryBounds(minX, minY, maxX, maxY, start, end);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
 
-            } else if (start.isAfter(op.getStart()) && start.isBefore(op.getEnd())) {
-                allOperations.add(op);
+    // Intelligence operations whose flight route passes at most radius away from (x, y),
+    // e.g. near an attack target, and that overlap the window (start, end)
+    public List<IntelligenceGatheringOperation> getIntelligenceOperationsNear(double x, double y, double radius,
+                                                                              LocalDateTime start, LocalDateTime end) {
+        this.lock.readLock().lock();
+        try {
+            return this.routeIndex.queryRadius(x, y, radius, start, end);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
 
-            } else if (end.isBefore(op.getEnd()) && end.isAfter(op.getStart())) {
-                allOperations.add(op);
+    // Intelligence operations whose flight route crosses the box (edges included) and that
+    // overlap the window (start, end)
+    public List<IntelligenceGatheringOperation> getIntelligenceOperationsCrossingBounds(double minX, double minY,
+                                                                                        double maxX, double maxY,
+                                                                                        LocalDateTime start,
+                                                                                        LocalDateTime end) {
+        long started = System.nanoTime();
+        this.lock.readLock().lock();
+        try {
+            return this.routeIndex.queryBounds(minX, minY, maxX, maxY, start, end);
+        } finally {
+            this.lock.readLock().unlock();
+            GET_INTELLIGENCE_OPERATIONS_CROSSING_BOUNDS_LATENCY.recordSince(started);
+        }
+    }
 
-            } else if (start.isAfter(op.getStart()) && end.isBefore(op.getEnd())) {
-                allOperations.add(op);
+    public List<Operation> getAllOperationsWithinTime(LocalDateTime start, LocalDateTime end) {
+        long started = System.nanoTime();
+        this.lock.readLock().lock();
+        try {
+            return this.operationTimeIndex.query(start, end);
+        } finally {
+            this.lock.readLock().unlock();
+            GET_ALL_OPERATIONS_WITHIN_TIME_LATENCY.recordSince(started);
+        }
+    }
 
-            } else if (start.equals(op.getStart()) || end.equals(op.getEnd())) {
-                allOperations.add(op);
+    public boolean isOperationReady(Operation op) {
+        this.lock.readLock().lock();
+        try {
+            synchronized (op) {
+                return op.isOperationReady();
             }
+        } finally {
+            this.lock.readLock().unlock();
         }
-        return allOperations;
     }
 
-    public boolean isOperationReady(Operation op) {
-        return op.isOperationReady();
+    public ReadinessStatus getReadinessStatus(Operation op) {
+        this.lock.readLock().lock();
+        try {
+            synchronized (op) {
+                return op.getReadinessStatus();
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
     }
 
     public void changeOperationTime(Operation op, LocalDateTime newStart, LocalDateTime newEnd) {
-        op.setStart(newStart);
-        op.setEnd(newEnd);
+        long started = System.nanoTime();
+        this.lock.writeLock().lock();
+        try {
+            LocalDateTime oldStart = op.getStart();
+            LocalDateTime oldEnd = op.getEnd();
+            AircraftIdSet releasedAircrafts = op.getAssignedAircrafts().copy();
+
+            // The indexes are keyed by the old times, so take the operation out before moving it
+            unindexOperation(op);
+            op.setStart(newStart);
+            op.setEnd(newEnd);
+            indexOperation(op);
+            release(op);
+            this.jsonHandler.changeOperationTimeInJson(op);
+
+            // Only the released aircraft got free time, and only around the old window.
+            // Every other aircraft can at most join the moved operation. Walking the
+            // candidates in the same aircraft/operation order as assignAllAircrafts
+            // gives the same result as re-running it
+            int buffer = AircraftSchedule.TURNAROUND_MINUTES + 1;
+            List<Operation> candidates = this.operationTimeIndex.query(oldStart.minusMinutes(buffer),
+                    oldEnd.plusMinutes(buffer));
+            if (!candidates.contains(op)) {
+                candidates.add(op);
+            }
+            candidates.sort(Comparator.comparingInt(this.registry::getOperationOrder));
+
+            List<Operation> changedOperations = new ArrayList<>();
+            changedOperations.add(op);
+            for (Aircraft aircraft : this.aircrafts) {
+                if (!releasedAircrafts.contains(aircraft.getId())) {
+                    assign(aircraft, op);
+                    continue;
+                }
+                for (Operation operation : candidates) {
+                    if (assign(aircraft, operation)) {
+                        changedOperations.add(operation);
+                    }
+                }
+            }
+            publish("changeOperationTime", changedOperations);
+        } finally {
+            this.lock.writeLock().unlock();
+            CHANGE_OPERATION_TIME_LATENCY.recordSince(started);
+        }
+    }
+
+    private void indexOperation(Operation operation) {
+        this.operationTimeIndex.insert(operation);
+        if (operation instanceof AttackOperation) {
+            this.attackLocationIndex.insert((AttackOperation) operation);
+        } else if (operation instanceof IntelligenceGatheringOperation) {
+            this.routeIndex.insert((IntelligenceGatheringOperation) operation);
+        }
+    }
+
+    private void unindexOperation(Operation operation) {
+        this.operationTimeIndex.remove(operation);
+        if (operation instanceof AttackOperation) {
+            this.attackLocationIndex.remove((AttackOperation) operation);
+        } else if (operation instanceof IntelligenceGatheringOperation) {
+            this.routeIndex.remove((IntelligenceGatheringOperation) operation);
+        }
+    }
+
+    public void releaseAssignedAircrafts(Operation op) {
+        this.lock.writeLock().lock();
+        try {
+            release(op);
+            this.jsonHandler.addOperationToJson(op);
+            publish("releaseAssignedAircrafts", List.of(op));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void release(Operation op) {
+        AircraftIdSet assignedAircrafts = op.getAssignedAircrafts();
+        for (int i = 0; i < assignedAircrafts.size(); i++) {
+            Aircraft aircraft = this.aircrafts.get(assignedAircrafts.get(i));
+            if (aircraft != null) {
+                aircraft.removeOperation(op);
+            }
+        }
         op.removeAllAssignedAircrafts();
+    }
+
+    // Engine behind the full passes, the incremental mutations always assign greedily
+    public void setAssignmentEngine(AssignmentEngine assignmentEngine) {
+        this.lock.writeLock().lock();
+        try {
+            this.assignmentEngine = assignmentEngine;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    public void assignAllAircrafts() {
+        long started = System.nanoTime();
+        this.lock.writeLock().lock();
+        try {
+            HashSet<Operation> changedOperations = new HashSet<>();
+            this.assignmentEngine.assign(aircraftList(), this.operations, (aircraft, operation) -> {
+                if (!assign(aircraft, operation)) {
+                    return false;
+                }
+                changedOperations.add(operation);
+                return true;
+            });
+            publish("assignAllAircrafts", changedOperations);
+        } finally {
+            this.lock.writeLock().unlock();
+            ASSIGN_ALL_AIRCRAFTS_LATENCY.recordSince(started);
+        }
+    }
 
-        // It's possible that because the time changes, it will open up
-        // other operations for all aircraft
+    // Drops every crew and lets the assignment engine build them again from scratch.
+    // The result is persisted once, like an import
+    public void reassignAllAircrafts() {
+        long started = System.nanoTime();
+        this.lock.writeLock().lock();
+        try {
+            for (Operation operation : this.operations) {
+                release(operation);
+            }
+            this.assignmentEngine.assign(aircraftList(), this.operations, this::assignWithoutPersisting);
+            this.jsonHandler.importToJson(new int[0], List.of(), this.operations);
+            publish("reassignAllAircrafts", this.operations);
+        } finally {
+            this.lock.writeLock().unlock();
+            REASSIGN_ALL_AIRCRAFTS_LATENCY.recordSince(started);
+        }
+    }
+
+    private List<Aircraft> aircraftList() {
+        List<Aircraft> aircraftList = new ArrayList<>(this.aircrafts.size());
         for (Aircraft aircraft : this.aircrafts) {
-            aircraft.clearOperations();
-            tryAddAircraftToOperations(aircraft);
+            aircraftList.add(aircraft);
         }
+        return aircraftList;
     }
 
     public void tryAddAircraftToOperations(Aircraft aircraft) {
+        this.lock.writeLock().lock();
+        try {
+            publish("tryAddAircraftToOperations", assignToOperations(aircraft));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the operations the aircraft joined, callers hold the write lock
+    private List<Operation> assignToOperations(Aircraft aircraft) {
+        List<Operation> changedOperations = new ArrayList<>();
         for (Operation operation : this.operations) {
-            assignAircraftToOperation(aircraft, operation);
+            if (assign(aircraft, operation)) {
+                changedOperations.add(operation);
+            }
         }
+        return changedOperations;
     }
 
     public void assignAllPossibleAircrafts(Operation operation) {
-        int assign = 1;
-        for (Aircraft aircraft : this.aircrafts) {
-            for (Operation op : this.operations) {
-                if (operation.getTaskInformation().getOperationName()
-                        .equals(op.getTaskInformation().getOperationName())) {
-                    continue;
-                }
-
-                if (op.isAircraftAssigned(aircraft.getId()) && !operation.canAssignWithTime(op)) {
-                    assign = 0;
+        this.lock.writeLock().lock();
+        try {
+            // The aircraft schedule holds every operation the aircraft is assigned to,
+            // so a single overlap check covers the other operations
+            for (Aircraft aircraft : this.aircrafts) {
+                if (operation.reachedCapacity()) {
                     break;
                 }
+                ASSIGNMENT_ATTEMPTS.increment();
+                if (!aircraft.operationAssignmentOverlaps(operation)) {
+                    operation.assignAircraft(aircraft.getId());
+                    aircraft.addOperationToList(operation);
+                    ASSIGNMENTS.increment();
+                }
             }
-            if (assign == 1 && !operation.reachedCapacity() && !aircraft.operationAssignmentOverlaps(operation)) {
-                operation.assignAircraft(aircraft.getId());
-            }
-            assign = 1;
+            this.jsonHandler.addOperationToJson(operation);
+            publish("assignAllPossibleAircrafts", List.of(operation));
+        } finally {
+            this.lock.writeLock().unlock();
         }
-        this.jsonHandler.addNewOperationToJson(operation);
     }
 
-    public void getAllUnpreparedOperations(int xHours) {
-        for (Operation op : this.operations) {
-            if (op.isOperationInXTime(xHours) && !op.isOperationReady()) {
-                System.out.println(op.getTaskInformation().getOperationName());
+    // Operations starting within the next xHours that are not ready. The time index narrows
+    // the search to those operations instead of scanning all of them. The window starts at
+    // the exact time, cut to the minute it would drop operations starting in its last minute
+    public List<Operation> getAllUnpreparedOperations(int xHours) {
+        long started = System.nanoTime();
+        this.lock.readLock().lock();
+        try {
+            LocalDateTime now = this.clock.now();
+            List<Operation> unpreparedOperations = new ArrayList<>();
+            for (Operation op : this.operationTimeIndex.query(now, now.plusHours(xHours))) {
+                if (op.isOperationInXTime(xHours) && !isOperationReady(op)) {
+                    unpreparedOperations.add(op);
+                }
             }
+            return unpreparedOperations;
+        } finally {
+            this.lock.readLock().unlock();
+            GET_ALL_UNPREPARED_OPERATIONS_LATENCY.recordSince(started);
         }
     }
 
     public DrawerOperation getDrawerOperationByName(String opName) {
-        for (DrawerOperation op : this.drawerOperations) {
-            if (op.getTaskInformation().getOperationName().equals(opName)) {
-                return op;
-            }
+        this.lock.readLock().lock();
+        try {
+            return this.registry.getDrawerOperation(opName);
+        } finally {
+            this.lock.readLock().unlock();
         }
-        return null;
     }
 
     public boolean isIntelligenceDrawerOperation(String opName) {
@@ -187,67 +889,97 @@ public class MainSystem {
         return op instanceof IntelligenceDrawerOperation;
     }
 
-    public void addIntelligenceDrawerOperation(TaskInformation TI, String cameraType, String flightRoute) {
-        if (operationNameExists(TI.getOperationName())) {
-            return;
+    public boolean addIntelligenceDrawerOperation(TaskInformation TI, String cameraType, String flightRoute) {
+        this.lock.writeLock().lock();
+        try {
+            if (operationNameExists(TI.getOperationName())) {
+                return false;
+            }
+            DrawerOperation drawerOperation = new IntelligenceDrawerOperation(TI, cameraType, flightRoute);
+            this.registry.addDrawerOperation(drawerOperation);
+            this.jsonHandler.addDrawerOperationToJson(drawerOperation);
+            publishDrawerChanges("addIntelligenceDrawerOperation",
+                    List.of(ChangeEvent.drawerOperationAdded(drawerOperation)));
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
         }
-        DrawerOperation drawerOperation = new IntelligenceDrawerOperation(TI, cameraType, flightRoute);
-        this.drawerOperations.add(drawerOperation);
-        this.jsonHandler.addDrawerOperationToJson(drawerOperation);
     }
 
-    public void addDrawerOperation(String operationName, String taskDescription, int numOfAircrafts) {
-        if (operationNameExists(operationName)) {
-            return;
+    public boolean addDrawerOperation(String operationName, String taskDescription, int numOfAircrafts) {
+        this.lock.writeLock().lock();
+        try {
+            if (operationNameExists(operationName)) {
+                return false;
+            }
+            TaskInformation taskInformation = new TaskInformation(operationName, taskDescription, numOfAircrafts);
+            DrawerOperation drawerOperation = new DrawerOperation(taskInformation);
+            this.registry.addDrawerOperation(drawerOperation);
+            this.jsonHandler.addDrawerOperationToJson(drawerOperation);
+            publishDrawerChanges("addDrawerOperation", List.of(ChangeEvent.drawerOperationAdded(drawerOperation)));
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
         }
-        TaskInformation taskInformation = new TaskInformation(operationName, taskDescription, numOfAircrafts);
-        DrawerOperation drawerOperation = new DrawerOperation(taskInformation);
-        this.drawerOperations.add(drawerOperation);
-        this.jsonHandler.addDrawerOperationToJson(drawerOperation);
     }
 
     public boolean createAttackOperation(String opName, LocalDateTime start, LocalDateTime end,
                                       String armamentType, Point attackLocation) {
-        AttackOperation attackOperation = null;
-        for (DrawerOperation op : this.drawerOperations) {
-            if (op.getTaskInformation().getOperationName().equals(opName)) {
-                attackOperation = op.createAttackOperation(start, end, armamentType, attackLocation);
-                this.drawerOperations.remove(op);
-                this.jsonHandler.handleDrawerOperationConversion(op);
-                break;
+        long started = System.nanoTime();
+        this.lock.writeLock().lock();
+        beginMutation("createAttackOperation");
+        try {
+            DrawerOperation op = this.registry.removeDrawerOperation(opName);
+            if (op == null) {
+                return false;
             }
-        }
-        if (attackOperation == null) {
-            return false;
-        }
+            this.drawerOperationsChanged = true;
 
-        return addOperation(attackOperation);
+            AttackOperation attackOperation = op.createAttackOperation(start, end, armamentType, attackLocation);
+            if (this.changeFeed.hasSubscribers()) {
+                this.pendingChanges.add(ChangeEvent.drawerOperationRemoved(op));
+            }
+            this.jsonHandler.handleDrawerOperationConversion(op);
+            return addOperation(attackOperation);
+        } finally {
+            endMutation();
+            this.lock.writeLock().unlock();
+            CREATE_ATTACK_OPERATION_LATENCY.recordSince(started);
+        }
     }
 
     public boolean createIntelligenceGatheringOperation(String opName, LocalDateTime start, LocalDateTime end,
                                          String cameraType, String flightRoute) {
-        IntelligenceGatheringOperation intelligenceGatheringOperation = null;
-        for (DrawerOperation op : this.drawerOperations) {
-            if (op.getTaskInformation().getOperationName().equals(opName)) {
-                intelligenceGatheringOperation = op.createIntelligenceGatheringOperation(start, end,
-                        cameraType, flightRoute);
-                this.drawerOperations.remove(op);
-                this.jsonHandler.handleDrawerOperationConversion(op);
-                break;
+        long started = System.nanoTime();
+        this.lock.writeLock().lock();
+        beginMutation("createIntelligenceGatheringOperation");
+        try {
+            DrawerOperation op = this.registry.removeDrawerOperation(opName);
+            if (op == null) {
+                return false;
             }
+            this.drawerOperationsChanged = true;
+
+            IntelligenceGatheringOperation intelligenceGatheringOperation = op.createIntelligenceGatheringOperation(start,
+                    end, cameraType, flightRoute);
+            if (this.changeFeed.hasSubscribers()) {
+                this.pendingChanges.add(ChangeEvent.drawerOperationRemoved(op));
+            }
+            this.jsonHandler.handleDrawerOperationConversion(op);
+            return addOperation(intelligenceGatheringOperation);
+        } finally {
+            endMutation();
+            this.lock.writeLock().unlock();
+            CREATE_INTELLIGENCE_GATHERING_OPERATION_LATENCY.recordSince(started);
         }
-        if (intelligenceGatheringOperation == null) {
-            return false;
-        }
-        return addOperation(intelligenceGatheringOperation);
     }
 
     public boolean drawerOperationNameExists(String operationName) {
-        for (DrawerOperation op : this.drawerOperations) {
-            if (op.getTaskInformation().getOperationName().equals(operationName)) {
-                return true;
-            }
+        this.lock.readLock().lock();
+        try {
+            return this.registry.drawerOperationExists(operationName);
+        } finally {
+            this.lock.readLock().unlock();
         }
-        return false;
     }
 }
@@ -0,0 +1,5 @@
+// Where the menu handlers get their answers from. The console prints each prompt and
+// waits for a line, a batch command hands out the answers it carries without prompting
+public interface MenuInput {
+    String nextLine(String prompt);
+}
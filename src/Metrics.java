@@ -0,0 +1,88 @@
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process wide counters and latency histograms. Instrumented classes look their metrics
+// up once into static fields, so counting is a LongAdder increment and timing two
+// System.nanoTime calls plus a histogram record. Read through JMX or dump()
+public class Metrics implements MetricsMXBean {
+    public static final String OBJECT_NAME = "ProjectShachar:type=Metrics";
+
+    private static final Metrics INSTANCE = new Metrics();
+    private static final ConcurrentHashMap<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    // Safe to call more than once
+    public static void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> counter : COUNTERS.entrySet()) {
+            counters.put(counter.getKey(), counter.getValue().sum());
+        }
+        return counters;
+    }
+
+    public Map<String, HistogramSummary> getHistograms() {
+        Map<String, HistogramSummary> histograms = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> histogram : HISTOGRAMS.entrySet()) {
+            histograms.put(histogram.getKey(), histogram.getValue().summarize());
+        }
+        return histograms;
+    }
+
+    // Counters, then one line per histogram that recorded anything, times in microseconds
+    public String dump() {
+        StringBuilder dump = new StringBuilder();
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            dump.append(String.format("%-40s %14d%n", counter.getKey(), counter.getValue()));
+        }
+        dump.append(String.format("%-40s %10s %10s %10s %10s %10s %10s %10s%n", "latency (us)", "count", "mean",
+                "p50", "p90", "p99", "p99.9", "max"));
+        for (Map.Entry<String, HistogramSummary> histogram : getHistograms().entrySet()) {
+            HistogramSummary summary = histogram.getValue();
+            if (summary.getCount() == 0) {
+                continue;
+            }
+            dump.append(String.format("%-40s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", histogram.getKey(),
+                    summary.getCount(), summary.getMeanNanos() / 1000, summary.getP50Nanos() / 1000.0,
+                    summary.getP90Nanos() / 1000.0, summary.getP99Nanos() / 1000.0,
+                    summary.getP999Nanos() / 1000.0, summary.getMaxNanos() / 1000.0));
+        }
+        return dump.toString();
+    }
+
+    public void reset() {
+        for (LongAdder counter : COUNTERS.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : HISTOGRAMS.values()) {
+            histogram.reset();
+        }
+    }
+}
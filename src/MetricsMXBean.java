@@ -0,0 +1,12 @@
+import java.util.Map;
+
+// JMX view of Metrics, registered as ProjectShachar:type=Metrics
+public interface MetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, HistogramSummary> getHistograms();
+
+    String dump();
+
+    void reset();
+}
@@ -0,0 +1,61 @@
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+// Reads the current wall clock time as epoch minutes (same scale as Utils.toEpochMinute)
+// without allocating. The zone offset is looked up once and reused until the next
+// offset transition of the clock's zone
+public class MinuteClock {
+    // Wall clock of the default zone, used by operations no MainSystem gave a clock
+    public static final MinuteClock SYSTEM = new MinuteClock(Clock.systemDefaultZone());
+
+    private final Clock clock;
+    private volatile ZoneOffsetWindow offsetWindow;
+
+    private static class ZoneOffsetWindow {
+        private final long fromMillis;
+        private final long untilMillis;
+        private final long offsetSeconds;
+
+        private ZoneOffsetWindow(long fromMillis, long untilMillis, long offsetSeconds) {
+            this.fromMillis = fromMillis;
+            this.untilMillis = untilMillis;
+            this.offsetSeconds = offsetSeconds;
+        }
+    }
+
+    public MinuteClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public Clock getClock() {
+        return this.clock;
+    }
+
+    // The exact time, for the few checks that need more than the minute
+    public LocalDateTime now() {
+        return LocalDateTime.now(this.clock);
+    }
+
+    public long nowMinute() {
+        long millis = this.clock.millis();
+        ZoneOffsetWindow window = this.offsetWindow;
+        if (window == null || millis < window.fromMillis || millis >= window.untilMillis) {
+            window = lookupOffset(millis);
+            this.offsetWindow = window;
+        }
+        return Math.floorDiv(Math.floorDiv(millis, 1000) + window.offsetSeconds, 60);
+    }
+
+    private ZoneOffsetWindow lookupOffset(long millis) {
+        ZoneRules rules = this.clock.getZone().getRules();
+        Instant instant = Instant.ofEpochMilli(millis);
+        ZoneOffsetTransition previous = rules.previousTransition(instant);
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        long fromMillis = previous == null ? Long.MIN_VALUE : previous.getInstant().toEpochMilli();
+        long untilMillis = next == null ? Long.MAX_VALUE : next.getInstant().toEpochMilli();
+        return new ZoneOffsetWindow(fromMillis, untilMillis, rules.getOffset(instant).getTotalSeconds());
+    }
+}
@@ -1,24 +1,54 @@
 import java.time.LocalDateTime;
-import java.util.HashSet;
 
 public class Operation {
     protected final TaskInformation taskInformation;
-    protected HashSet<Integer> assignedAircrafts;
+    protected AircraftIdSet assignedAircrafts;
     protected LocalDateTime start;
     protected LocalDateTime end;
 
+    // The same times as epoch minutes, every time comparison runs on these
+    protected long startMinute;
+    protected long endMinute;
+
+    // Clock behind the readiness and time window checks, MainSystem hands every
+    // operation it holds its own clock
+    protected MinuteClock clock = MinuteClock.SYSTEM;
+
+    // Crew part of the readiness rule together with the crew size it was computed for,
+    // packed as size << 1 | ready so it is read and written in one go. Any assignment
+    // change alters the size and with it invalidates the cache, -1 means not computed
+    private int crewReadiness = -1;
+
     public Operation(TaskInformation taskInformation, LocalDateTime start, LocalDateTime end) {
         this.taskInformation = taskInformation;
-        this.assignedAircrafts = new HashSet<>();
+        this.assignedAircrafts = new AircraftIdSet(taskInformation.getNumOfAircrafts());
         this.start = start;
         this.end = end;
+        this.startMinute = Utils.toEpochMinute(start);
+        this.endMinute = Utils.toEpochMinute(end);
+    }
+
+    public void setClock(MinuteClock clock) {
+        this.clock = clock;
+    }
+
+    public MinuteClock getClock() {
+        return this.clock;
+    }
+
+    // Independent copy with its own crew set, changes to either side do not show in the other
+    public Operation copy() {
+        Operation copy = new Operation(this.taskInformation, this.start, this.end);
+        copy.assignedAircrafts = this.assignedAircrafts.copy();
+        copy.clock = this.clock;
+        return copy;
     }
 
-    public void setAssignedAircrafts(HashSet<Integer> assignedAircrafts) {
+    public void setAssignedAircrafts(AircraftIdSet assignedAircrafts) {
         this.assignedAircrafts = assignedAircrafts;
     }
 
-    public HashSet<Integer> getAssignedAircrafts() {
+    public AircraftIdSet getAssignedAircrafts() {
         return this.assignedAircrafts;
     }
 
@@ -30,16 +60,26 @@ public class Operation {
         return this.end;
     }
 
+    public long getStartMinute() {
+        return this.startMinute;
+    }
+
+    public long getEndMinute() {
+        return this.endMinute;
+    }
+
     public TaskInformation getTaskInformation() {
         return this.taskInformation;
     }
 
     public void setStart(LocalDateTime start) {
         this.start = start;
+        this.startMinute = Utils.toEpochMinute(start);
     }
 
     public void setEnd(LocalDateTime end) {
         this.end = end;
+        this.endMinute = Utils.toEpochMinute(end);
     }
 
     public void removeAllAssignedAircrafts() {
@@ -54,26 +94,100 @@ public class Operation {
         this.assignedAircrafts.add(id);
     }
 
+    // Two operations can share an aircraft when more than an hour separates them
     public boolean canAssignWithTime(Operation other) {
-        if ((this.start.isAfter(other.start) && this.start.isBefore(other.end))
-        || (other.start.isAfter(this.start) && other.start.isBefore(this.end))) {
+        return this.startMinute > other.endMinute + AircraftSchedule.TURNAROUND_MINUTES
+                || this.endMinute < other.startMinute - AircraftSchedule.TURNAROUND_MINUTES;
+    }
+
+    // Ready after start - window up to the start itself, with a crew the rule accepts.
+    // Only integer comparisons unless the crew changed since the last call or the clock
+    // is in one of the two edge minutes
+    public boolean isOperationReady() {
+        return isInReadinessWindow(this.clock.nowMinute()) && hasReadyCrewCached();
+    }
+
+    // Minutes strictly inside the window decide alone. The times are whole minutes, so
+    // in the edge minutes the exact time is compared like the LocalDateTime rule did
+    private boolean isInReadinessWindow(long now) {
+        long windowStart = readinessWindowStart();
+        if (now < windowStart || now > this.startMinute) {
             return false;
         }
-        if ((this.end.isBefore(other.end) && this.end.isAfter(other.start))
-        || (other.end.isBefore(this.end) && other.end.isAfter(this.start))) {
-            return false;
+        if (now > windowStart && now < this.startMinute) {
+            return true;
+        }
+        LocalDateTime exactNow = this.clock.now();
+        return !exactNow.isAfter(this.start) && exactNow.isAfter(this.start.minusHours(getReadinessWindowHours()));
+    }
+
+    // Cheap enough for dashboards polling many operations: current readiness, whether the
+    // crew is full and the minute time alone would flip the readiness
+    public ReadinessStatus getReadinessStatus() {
+        long now = this.clock.nowMinute();
+        boolean crewReady = hasReadyCrewCached();
+        long windowStart = readinessWindowStart();
+        boolean ready = crewReady && isInReadinessWindow(now);
+        long expiresAtMinute;
+        if (!crewReady || now >= this.startMinute || getReadinessWindowHours() <= 0) {
+            expiresAtMinute = Long.MAX_VALUE;
+        } else if (now < windowStart || !ready) {
+            // Not ready yet inside the first minute means at its very first instant
+            expiresAtMinute = windowStart;
+        } else {
+            expiresAtMinute = this.startMinute;
         }
-        return this.start.isAfter(other.end.minusHours(-1)) ||
-                this.end.isBefore(other.start.minusHours(1));
+        return new ReadinessStatus(ready, reachedCapacity(), expiresAtMinute);
     }
 
-    public boolean isOperationReady() {
+    private long readinessWindowStart() {
+        return this.startMinute - getReadinessWindowHours() * 60L;
+    }
+
+    // The crew part of isOperationReady alone, for callers that track the window themselves
+    public boolean hasReadyCrewAssigned() {
+        return hasReadyCrewCached();
+    }
+
+    private boolean hasReadyCrewCached() {
+        int crewSize = this.assignedAircrafts.size();
+        int cached = this.crewReadiness;
+        if (cached >= 0 && cached >>> 1 == crewSize) {
+            return (cached & 1) == 1;
+        }
+        boolean ready = hasReadyCrew(crewSize);
+        this.crewReadiness = crewSize << 1 | (ready ? 1 : 0);
+        return ready;
+    }
+
+    // How long before its start the operation can count as ready, 0 when it never can
+    public int getReadinessWindowHours() {
+        return 0;
+    }
+
+    // Whether a crew of this size satisfies the crew part of the readiness rule
+    public boolean hasReadyCrew(int crewSize) {
         return false;
     }
 
+    // Smallest crew the operation can be ready with, or -1 when no crew within capacity is enough
+    public int getReadyCrewSize() {
+        for (int crewSize = 0; crewSize <= this.taskInformation.getNumOfAircrafts(); crewSize++) {
+            if (hasReadyCrew(crewSize)) {
+                return crewSize;
+            }
+        }
+        return -1;
+    }
+
+    // Within the open interval (start - x hours, start), exact at the lower edge minute
     public boolean isOperationInXTime(int x) {
-        return LocalDateTime.now().isAfter(this.start.minusHours(x))
-                && LocalDateTime.now().isBefore(this.start);
+        long now = this.clock.nowMinute();
+        long from = this.startMinute - x * 60L;
+        if (now < from || now >= this.startMinute) {
+            return false;
+        }
+        return now > from || this.clock.now().isAfter(this.start.minusHours(x));
     }
 
     public boolean reachedCapacity() {
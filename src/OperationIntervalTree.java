@@ -0,0 +1,184 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// AVL tree keyed by operation start, every node also keeps the latest end
+// inside its subtree so window queries can skip whole branches
+public class OperationIntervalTree {
+    private Node root;
+    private int size;
+
+    private static class Node {
+        private final LocalDateTime start;
+        private final List<Operation> operations;
+        private LocalDateTime maxEnd;
+        private int height;
+        private Node left;
+        private Node right;
+
+        private Node(Operation operation) {
+            this.start = operation.getStart();
+            this.operations = new ArrayList<>();
+            this.operations.add(operation);
+            this.maxEnd = operation.getEnd();
+            this.height = 1;
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public void insert(Operation operation) {
+        this.root = insert(this.root, operation);
+        this.size++;
+    }
+
+    // Must be called while the operation still has the times it was inserted with
+    public boolean remove(Operation operation) {
+        int sizeBefore = this.size;
+        this.root = remove(this.root, operation);
+        return this.size != sizeBefore;
+    }
+
+    public void clear() {
+        this.root = null;
+        this.size = 0;
+    }
+
+    // Operations whose (start, end) overlaps the open window (start, end)
+    public List<Operation> query(LocalDateTime start, LocalDateTime end) {
+        List<Operation> result = new ArrayList<>();
+        query(this.root, start, end, result);
+        return result;
+    }
+
+    private void query(Node node, LocalDateTime start, LocalDateTime end, List<Operation> result) {
+        if (node == null || !node.maxEnd.isAfter(start)) {
+            return;
+        }
+        query(node.left, start, end, result);
+        if (!node.start.isBefore(end)) {
+            return;
+        }
+        for (Operation op : node.operations) {
+            if (op.getEnd().isAfter(start)) {
+                result.add(op);
+            }
+        }
+        query(node.right, start, end, result);
+    }
+
+    private Node insert(Node node, Operation operation) {
+        if (node == null) {
+            return new Node(operation);
+        }
+        int cmp = operation.getStart().compareTo(node.start);
+        if (cmp < 0) {
+            node.left = insert(node.left, operation);
+        } else if (cmp > 0) {
+            node.right = insert(node.right, operation);
+        } else {
+            node.operations.add(operation);
+        }
+        return rebalance(node);
+    }
+
+    private Node remove(Node node, Operation operation) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = operation.getStart().compareTo(node.start);
+        if (cmp < 0) {
+            node.left = remove(node.left, operation);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, operation);
+        } else {
+            if (!node.operations.remove(operation)) {
+                return node;
+            }
+            this.size--;
+            if (node.operations.isEmpty()) {
+                if (node.left == null) {
+                    return node.right;
+                }
+                if (node.right == null) {
+                    return node.left;
+                }
+                Node successor = node.right;
+                while (successor.left != null) {
+                    successor = successor.left;
+                }
+                successor.right = removeMin(node.right);
+                successor.left = node.left;
+                return rebalance(successor);
+            }
+        }
+        return rebalance(node);
+    }
+
+    private Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return rebalance(node);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        LocalDateTime maxEnd = node.operations.get(0).getEnd();
+        for (Operation op : node.operations) {
+            if (op.getEnd().isAfter(maxEnd)) {
+                maxEnd = op.getEnd();
+            }
+        }
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rebalance(Node node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+}
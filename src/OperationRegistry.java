@@ -0,0 +1,75 @@
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+// Name-keyed lookup for active and drawer operations. Operation names are
+// unique across both kinds, so the registry also remembers where each name
+// sits inside its JSON array
+public class OperationRegistry {
+    private final HashMap<String, Operation> operations;
+    private final LinkedHashMap<String, DrawerOperation> drawerOperations;
+    private final HashMap<String, Integer> jsonPositions;
+    private final HashMap<String, Integer> operationOrder;
+
+    public OperationRegistry() {
+        this.operations = new HashMap<>();
+        this.drawerOperations = new LinkedHashMap<>();
+        this.jsonPositions = new HashMap<>();
+        this.operationOrder = new HashMap<>();
+    }
+
+    public boolean nameExists(String operationName) {
+        return this.operations.containsKey(operationName)
+                || this.drawerOperations.containsKey(operationName);
+    }
+
+    public void addOperation(Operation operation) {
+        String operationName = operation.getTaskInformation().getOperationName();
+        this.operationOrder.put(operationName, this.operations.size());
+        this.operations.put(operationName, operation);
+    }
+
+    // Position of the operation in the order operations were added, which is
+    // also the order assignment passes visit them in
+    public int getOperationOrder(Operation operation) {
+        Integer order = this.operationOrder.get(operation.getTaskInformation().getOperationName());
+        return order == null ? -1 : order;
+    }
+
+    public Operation getOperation(String operationName) {
+        return this.operations.get(operationName);
+    }
+
+    public void addDrawerOperation(DrawerOperation drawerOperation) {
+        this.drawerOperations.put(drawerOperation.getTaskInformation().getOperationName(), drawerOperation);
+    }
+
+    public DrawerOperation getDrawerOperation(String operationName) {
+        return this.drawerOperations.get(operationName);
+    }
+
+    public boolean drawerOperationExists(String operationName) {
+        return this.drawerOperations.containsKey(operationName);
+    }
+
+    public DrawerOperation removeDrawerOperation(String operationName) {
+        return this.drawerOperations.remove(operationName);
+    }
+
+    public Collection<DrawerOperation> getDrawerOperations() {
+        return this.drawerOperations.values();
+    }
+
+    public int getJsonPosition(String operationName) {
+        Integer position = this.jsonPositions.get(operationName);
+        return position == null ? -1 : position;
+    }
+
+    public void setJsonPosition(String operationName, int position) {
+        this.jsonPositions.put(operationName, position);
+    }
+
+    public void removeJsonPosition(String operationName) {
+        this.jsonPositions.remove(operationName);
+    }
+}
@@ -0,0 +1,69 @@
+import java.time.LocalDateTime;
+
+// Read-only state of an operation at the moment a snapshot was published. Wraps a
+// private copy of the operation that nobody mutates, so it is safe to read from any thread
+public class OperationView {
+    private final Operation operation;
+
+    private OperationView(Operation operation) {
+        this.operation = operation;
+    }
+
+    // The caller must keep the operation still while it is copied
+    public static OperationView of(Operation operation) {
+        return new OperationView(operation.copy());
+    }
+
+    public TaskInformation getTaskInformation() {
+        return this.operation.getTaskInformation();
+    }
+
+    public String getOperationName() {
+        return this.operation.getTaskInformation().getOperationName();
+    }
+
+    public LocalDateTime getStart() {
+        return this.operation.getStart();
+    }
+
+    public LocalDateTime getEnd() {
+        return this.operation.getEnd();
+    }
+
+    public boolean isAttackOperation() {
+        return this.operation instanceof AttackOperation;
+    }
+
+    public boolean isIntelligenceGatheringOperation() {
+        return this.operation instanceof IntelligenceGatheringOperation;
+    }
+
+    public int[] getAssignedAircrafts() {
+        return this.operation.getAssignedAircrafts().toArray();
+    }
+
+    public int getAssignedAircraftCount() {
+        return this.operation.getAssignedAircrafts().size();
+    }
+
+    public boolean isAircraftAssigned(int id) {
+        return this.operation.isAircraftAssigned(id);
+    }
+
+    // Evaluated against the operation clock at call time, on the crew the snapshot holds
+    public boolean isOperationReady() {
+        return this.operation.isOperationReady();
+    }
+
+    public ReadinessStatus getReadinessStatus() {
+        return this.operation.getReadinessStatus();
+    }
+
+    public boolean isOperationInXTime(int x) {
+        return this.operation.isOperationInXTime(x);
+    }
+
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        return this.operation.getEnd().isAfter(start) && this.operation.getStart().isBefore(end);
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Same result as GreedyAssignmentEngine, with the expensive part spread over a ForkJoinPool.
+//
+// Aircraft are handled in waves. For a wave, every aircraft partition walks the operations
+// that still have room, in parallel, and records the ones each aircraft would join if no
+// operation filled up during the wave. Aircraft only share capacity, so these picks are
+// exactly the greedy ones until an operation an aircraft picked turns out to be full.
+// Then the picks are committed aircraft by aircraft in id order. An aircraft whose pick
+// is rejected falls back to the plain greedy walk from that operation on, which keeps the
+// outcome identical to the sequential pass. Full operations are dropped between waves,
+// so later waves only walk what can still be joined
+public class ParallelAssignmentEngine implements AssignmentEngine {
+    private static final int AIRCRAFT_PER_TASK = 8;
+
+    private final ForkJoinPool pool;
+    private final int waveSize;
+
+    public ParallelAssignmentEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelAssignmentEngine(ForkJoinPool pool) {
+        this.pool = pool;
+        this.waveSize = Math.max(pool.getParallelism(), 1) * AIRCRAFT_PER_TASK * 2;
+    }
+
+    public void assign(List<Aircraft> aircrafts, List<Operation> operations, Target target) {
+        for (int waveStart = 0; waveStart < aircrafts.size(); waveStart += this.waveSize) {
+            int waveEnd = Math.min(waveStart + this.waveSize, aircrafts.size());
+            Operation[] open = openOperations(operations);
+            if (open.length == 0) {
+                return;
+            }
+            int[][] picks = new int[waveEnd - waveStart][];
+            this.pool.invoke(new PickTask(aircrafts, open, picks, waveStart, waveStart, waveEnd));
+            commit(aircrafts, open, picks, waveStart, target);
+        }
+    }
+
+    private static Operation[] openOperations(List<Operation> operations) {
+        Operation[] open = new Operation[operations.size()];
+        int count = 0;
+        for (Operation operation : operations) {
+            if (!operation.reachedCapacity()) {
+                open[count++] = operation;
+            }
+        }
+        return Arrays.copyOf(open, count);
+    }
+
+    private static void commit(List<Aircraft> aircrafts, Operation[] open, int[][] picks, int waveStart,
+                               Target target) {
+        for (int i = 0; i < picks.length; i++) {
+            Aircraft aircraft = aircrafts.get(waveStart + i);
+            int[] aircraftPicks = picks[i];
+            for (int j = 1; j <= aircraftPicks[0]; j++) {
+                if (target.assign(aircraft, open[aircraftPicks[j]])) {
+                    continue;
+                }
+                for (int k = aircraftPicks[j] + 1; k < open.length; k++) {
+                    target.assign(aircraft, open[k]);
+                }
+                break;
+            }
+        }
+    }
+
+    // Fills picks[i - waveStart] with the count followed by the open positions aircraft i would join
+    // ForkJoinTask is Serializable but a task is never serialized, the engine state stays transient
+    private static class PickTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Aircraft> aircrafts;
+        private final transient Operation[] open;
+        private final int[][] picks;
+        private final int waveStart;
+        private final int from;
+        private final int to;
+
+        private PickTask(List<Aircraft> aircrafts, Operation[] open, int[][] picks, int waveStart, int from, int to) {
+            this.aircrafts = aircrafts;
+            this.open = open;
+            this.picks = picks;
+            this.waveStart = waveStart;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (this.to - this.from > AIRCRAFT_PER_TASK) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new PickTask(this.aircrafts, this.open, this.picks, this.waveStart, this.from, middle),
+                        new PickTask(this.aircrafts, this.open, this.picks, this.waveStart, middle, this.to));
+                return;
+            }
+            for (int i = this.from; i < this.to; i++) {
+                this.picks[i - this.waveStart] = pick(this.aircrafts.get(i));
+            }
+        }
+
+        private int[] pick(Aircraft aircraft) {
+            AircraftSchedule picked = new AircraftSchedule();
+            int[] positions = new int[8];
+            int count = 0;
+            for (int k = 0; k < this.open.length; k++) {
+                Operation operation = this.open[k];
+                if (operation.cannotAssignAircraftToOperation(aircraft)
+                        || aircraft.operationAssignmentOverlaps(operation) || picked.overlaps(operation)) {
+                    continue;
+                }
+                picked.add(operation);
+                if (++count == positions.length) {
+                    positions = Arrays.copyOf(positions, positions.length * 2);
+                }
+                positions[count] = k;
+            }
+            positions[0] = count;
+            return positions;
+        }
+    }
+}
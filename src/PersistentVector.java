@@ -0,0 +1,83 @@
+import java.util.Arrays;
+import java.util.Map;
+
+// Immutable list stored as fixed size chunks. An update copies the chunk array and only
+// the chunks it touches, every other chunk is shared with the version it was made from
+public class PersistentVector<T> {
+    private static final int CHUNK_BITS = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(new Object[0][], 0);
+
+    private final Object[][] chunks;
+    private final int size;
+
+    private PersistentVector(Object[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>) EMPTY;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (T) this.chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    public PersistentVector<T> with(int index, T value) {
+        if (index < 0 || index > this.size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return withAll(Map.of(index, value));
+    }
+
+    public PersistentVector<T> append(T value) {
+        return with(this.size, value);
+    }
+
+    // Applies all updates at once, so a chunk touched by several of them is copied once.
+    // Indexes may extend the vector but must not leave gaps behind its current end
+    public PersistentVector<T> withAll(Map<Integer, ? extends T> updates) {
+        if (updates.isEmpty()) {
+            return this;
+        }
+        int size = this.size;
+        int appended = 0;
+        for (int index : updates.keySet()) {
+            if (index < 0) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            if (index >= this.size) {
+                size = Math.max(size, index + 1);
+                appended++;
+            }
+        }
+        if (size - this.size != appended) {
+            throw new IndexOutOfBoundsException(this.size);
+        }
+
+        int chunkCount = (size + CHUNK_MASK) >>> CHUNK_BITS;
+        Object[][] chunks = Arrays.copyOf(this.chunks, chunkCount);
+        boolean[] copied = new boolean[chunkCount];
+        for (Map.Entry<Integer, ? extends T> update : updates.entrySet()) {
+            int index = update.getKey();
+            int chunk = index >>> CHUNK_BITS;
+            if (!copied[chunk]) {
+                chunks[chunk] = chunks[chunk] == null ? new Object[CHUNK_SIZE] : chunks[chunk].clone();
+                copied[chunk] = true;
+            }
+            chunks[chunk][index & CHUNK_MASK] = update.getValue();
+        }
+        return new PersistentVector<>(chunks, size);
+    }
+}
@@ -0,0 +1,9 @@
+// Callbacks of the ReadinessScheduler, delivered one at a time on the scheduler's thread
+public interface ReadinessListener {
+    // The operation's readiness window opened, or it was moved into it, while it was not ready
+    default void enteredWindowUnprepared(Operation operation) {
+    }
+
+    default void readinessChanged(Operation operation, boolean ready) {
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+
+// Tracks when operations enter and leave their readiness window (10 hours before an
+// attack, 3 hours before intelligence gathering) with a queue of timed events, two per
+// operation. Advancing the clock only touches the events that are due, and a change to an
+// operation only re-evaluates that operation, so the cost follows the number of events
+// instead of the number of operations.
+//
+// Callers serialize advance() against mutations of the tracked operations, the
+// listener is called through the notifier so it never runs under the caller's locks
+public class ReadinessScheduler {
+    private final ReadinessListener listener;
+    private final Executor notifier;
+    private final PriorityQueue<Event> events;
+    private final HashMap<Operation, TrackedOperation> trackedOperations;
+    private long sequence;
+
+    private static class TrackedOperation {
+        private long generation;
+        private long startMinute;
+        private boolean inWindow;
+        private boolean ready;
+    }
+
+    private static class Event implements Comparable<Event> {
+        private final long minute;
+        private final long sequence;
+        private final Operation operation;
+        private final long generation;
+        private final boolean opensWindow;
+
+        private Event(long minute, long sequence, Operation operation, long generation, boolean opensWindow) {
+            this.minute = minute;
+            this.sequence = sequence;
+            this.operation = operation;
+            this.generation = generation;
+            this.opensWindow = opensWindow;
+        }
+
+        public int compareTo(Event other) {
+            if (this.minute != other.minute) {
+                return Long.compare(this.minute, other.minute);
+            }
+            return Long.compare(this.sequence, other.sequence);
+        }
+    }
+
+    public ReadinessScheduler(ReadinessListener listener, Executor notifier) {
+        this.listener = listener;
+        this.notifier = notifier;
+        this.events = new PriorityQueue<>();
+        this.trackedOperations = new HashMap<>();
+    }
+
+    // Minute of the next event, Long.MAX_VALUE when nothing is scheduled
+    public synchronized long nextEventMinute() {
+        Event next = this.events.peek();
+        return next == null ? Long.MAX_VALUE : next.minute;
+    }
+
+    // Starts tracking new operations and re-evaluates the known ones: moved operations get
+    // new events, the others only have their readiness checked
+    public synchronized void operationsChanged(Collection<Operation> operations, long nowMinute) {
+        for (Operation operation : operations) {
+            if (operation.getReadinessWindowHours() <= 0) {
+                continue;
+            }
+            TrackedOperation tracked = this.trackedOperations.get(operation);
+            if (tracked == null) {
+                tracked = new TrackedOperation();
+                this.trackedOperations.put(operation, tracked);
+                schedule(operation, tracked, nowMinute);
+            } else if (tracked.startMinute != operation.getStartMinute()) {
+                schedule(operation, tracked, nowMinute);
+            } else if (tracked.inWindow) {
+                updateReadiness(operation, tracked);
+            }
+        }
+    }
+
+    public synchronized void advance(long nowMinute) {
+        while (!this.events.isEmpty() && this.events.peek().minute <= nowMinute) {
+            Event event = this.events.poll();
+            TrackedOperation tracked = this.trackedOperations.get(event.operation);
+            if (tracked.generation != event.generation) {
+                continue;
+            }
+            if (event.opensWindow) {
+                openWindow(event.operation, tracked);
+            } else {
+                closeWindow(event.operation, tracked);
+            }
+        }
+    }
+
+    // The window is open in the minutes where isOperationReady can hold: from
+    // start - window up to the minute before the start. Inside it the crew alone decides,
+    // the exact instants at the two edges are not worth an event of their own
+    private void schedule(Operation operation, TrackedOperation tracked, long nowMinute) {
+        tracked.generation++;
+        tracked.startMinute = operation.getStartMinute();
+        long opensAt = operation.getStartMinute() - operation.getReadinessWindowHours() * 60L;
+        long closesAt = operation.getStartMinute();
+        boolean inWindow = nowMinute >= opensAt && nowMinute < closesAt;
+
+        if (inWindow && !tracked.inWindow) {
+            openWindow(operation, tracked);
+        } else if (!inWindow && tracked.inWindow) {
+            closeWindow(operation, tracked);
+        } else if (inWindow) {
+            updateReadiness(operation, tracked);
+        }
+        if (nowMinute < opensAt) {
+            this.events.add(new Event(opensAt, this.sequence++, operation, tracked.generation, true));
+        }
+        if (nowMinute < closesAt) {
+            this.events.add(new Event(closesAt, this.sequence++, operation, tracked.generation, false));
+        }
+    }
+
+    private void openWindow(Operation operation, TrackedOperation tracked) {
+        tracked.inWindow = true;
+        tracked.ready = operation.hasReadyCrewAssigned();
+        if (tracked.ready) {
+            notifyReadinessChanged(operation, true);
+        } else {
+            this.notifier.execute(() -> this.listener.enteredWindowUnprepared(operation));
+        }
+    }
+
+    private void closeWindow(Operation operation, TrackedOperation tracked) {
+        tracked.inWindow = false;
+        if (tracked.ready) {
+            tracked.ready = false;
+            notifyReadinessChanged(operation, false);
+        }
+    }
+
+    private void updateReadiness(Operation operation, TrackedOperation tracked) {
+        boolean ready = operation.hasReadyCrewAssigned();
+        if (ready != tracked.ready) {
+            tracked.ready = ready;
+            notifyReadinessChanged(operation, ready);
+        }
+    }
+
+    private void notifyReadinessChanged(Operation operation, boolean ready) {
+        this.notifier.execute(() -> this.listener.readinessChanged(operation, ready));
+    }
+}
@@ -0,0 +1,33 @@
+import java.time.LocalDateTime;
+
+// Readiness of an operation at the moment it was asked for. Until the expiry minute only
+// an assignment change or a retime can change it
+public class ReadinessStatus {
+    private final boolean ready;
+    private final boolean reachedCapacity;
+    private final long expiresAtMinute;
+
+    public ReadinessStatus(boolean ready, boolean reachedCapacity, long expiresAtMinute) {
+        this.ready = ready;
+        this.reachedCapacity = reachedCapacity;
+        this.expiresAtMinute = expiresAtMinute;
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    public boolean hasReachedCapacity() {
+        return this.reachedCapacity;
+    }
+
+    // Long.MAX_VALUE when time alone never changes the readiness
+    public long getExpiresAtMinute() {
+        return this.expiresAtMinute;
+    }
+
+    // null when time alone never changes the readiness
+    public LocalDateTime getExpiresAt() {
+        return this.expiresAtMinute == Long.MAX_VALUE ? null : Utils.fromEpochMinute(this.expiresAtMinute);
+    }
+}
@@ -0,0 +1,350 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+// R-tree over intelligence operations keyed by the bounding box of their flight route
+// and their time span. A query descends only into nodes whose box meets the searched
+// area and window, then checks the route legs of the candidates exactly.
+// Nodes split quadratically and underfull nodes are dissolved and reinserted on removal
+public class RouteIndex {
+    private static final int MAX_ENTRIES = 8;
+    private static final int MIN_ENTRIES = 3;
+
+    // Each entry remembers the box it was inserted with, so removal works after the
+    // operation was retimed
+    private final IdentityHashMap<IntelligenceGatheringOperation, Entry> entries;
+    private Node root;
+
+    private static class Box {
+        private double minX;
+        private double minY;
+        private double maxX;
+        private double maxY;
+        private long from;
+        private long until;
+
+        private Box(double minX, double minY, double maxX, double maxY, long from, long until) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.from = from;
+            this.until = until;
+        }
+
+        private Box copy() {
+            return new Box(this.minX, this.minY, this.maxX, this.maxY, this.from, this.until);
+        }
+
+        private void include(Box other) {
+            this.minX = Math.min(this.minX, other.minX);
+            this.minY = Math.min(this.minY, other.minY);
+            this.maxX = Math.max(this.maxX, other.maxX);
+            this.maxY = Math.max(this.maxY, other.maxY);
+            this.from = Math.min(this.from, other.from);
+            this.until = Math.max(this.until, other.until);
+        }
+
+        private boolean meets(Box other) {
+            return this.minX <= other.maxX && this.maxX >= other.minX
+                    && this.minY <= other.maxY && this.maxY >= other.minY
+                    && this.from <= other.until && this.until >= other.from;
+        }
+
+        private boolean contains(Box other) {
+            return this.minX <= other.minX && this.maxX >= other.maxX
+                    && this.minY <= other.minY && this.maxY >= other.maxY
+                    && this.from <= other.from && this.until >= other.until;
+        }
+
+        // Space and time have unrelated units, the extra unit keeps flat boxes comparable
+        private double volume() {
+            return (this.maxX - this.minX + 1) * (this.maxY - this.minY + 1) * ((double) (this.until - this.from) + 1);
+        }
+
+        private double enlargedVolume(Box other) {
+            return (Math.max(this.maxX, other.maxX) - Math.min(this.minX, other.minX) + 1)
+                    * (Math.max(this.maxY, other.maxY) - Math.min(this.minY, other.minY) + 1)
+                    * ((double) (Math.max(this.until, other.until) - Math.min(this.from, other.from)) + 1);
+        }
+    }
+
+    private abstract static class Item {
+        protected Box box;
+    }
+
+    private static class Entry extends Item {
+        private final IntelligenceGatheringOperation operation;
+        private Node leaf;
+
+        private Entry(IntelligenceGatheringOperation operation, Box box) {
+            this.operation = operation;
+            this.box = box;
+        }
+    }
+
+    private static class Node extends Item {
+        private final boolean leaf;
+        private final List<Item> children;
+        private Node parent;
+
+        private Node(boolean leaf) {
+            this.leaf = leaf;
+            this.children = new ArrayList<>(MAX_ENTRIES + 1);
+        }
+
+        private void add(Item child) {
+            this.children.add(child);
+            if (child instanceof Node) {
+                ((Node) child).parent = this;
+            } else {
+                ((Entry) child).leaf = this;
+            }
+        }
+
+        private void recomputeBox() {
+            this.box = null;
+            for (Item child : this.children) {
+                if (this.box == null) {
+                    this.box = child.box.copy();
+                } else {
+                    this.box.include(child.box);
+                }
+            }
+        }
+    }
+
+    public RouteIndex() {
+        this.entries = new IdentityHashMap<>();
+        this.root = new Node(true);
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    // Operations with an empty route have nowhere to be found and are skipped
+    public void insert(IntelligenceGatheringOperation operation) {
+        FlightRoute route = operation.getRoute();
+        if (route.isEmpty() || this.entries.containsKey(operation)) {
+            return;
+        }
+        Entry entry = new Entry(operation, new Box(route.getMinX(), route.getMinY(), route.getMaxX(),
+                route.getMaxY(), operation.getStartMinute(), operation.getEndMinute()));
+        this.entries.put(operation, entry);
+        insert(entry);
+    }
+
+    public boolean remove(IntelligenceGatheringOperation operation) {
+        Entry entry = this.entries.remove(operation);
+        if (entry == null) {
+            return false;
+        }
+        Node leaf = entry.leaf;
+        leaf.children.remove(entry);
+        condense(leaf);
+        return true;
+    }
+
+    // Operations whose route touches the box (edges included) and that overlap the open window (start, end)
+    public List<IntelligenceGatheringOperation> queryBounds(double minX, double minY, double maxX, double maxY,
+                                                            LocalDateTime start, LocalDateTime end) {
+        List<IntelligenceGatheringOperation> result = new ArrayList<>();
+        for (IntelligenceGatheringOperation operation : candidates(minX, minY, maxX, maxY, start, end)) {
+            if (operation.getRoute().intersects(minX, minY, maxX, maxY)) {
+                result.add(operation);
+            }
+        }
+        return result;
+    }
+
+    // Operations whose route passes at most radius away from (x, y) and that overlap the open window (start, end)
+    public List<IntelligenceGatheringOperation> queryRadius(double x, double y, double radius,
+                                                            LocalDateTime start, LocalDateTime end) {
+        List<IntelligenceGatheringOperation> result = new ArrayList<>();
+        for (IntelligenceGatheringOperation operation : candidates(x - radius, y - radius, x + radius,
+                y + radius, start, end)) {
+            if (operation.getRoute().distanceTo(x, y) <= radius) {
+                result.add(operation);
+            }
+        }
+        return result;
+    }
+
+    private List<IntelligenceGatheringOperation> candidates(double minX, double minY, double maxX, double maxY,
+                                                           LocalDateTime start, LocalDateTime end) {
+        List<IntelligenceGatheringOperation> candidates = new ArrayList<>();
+        if (minX > maxX || minY > maxY || this.root.children.isEmpty()) {
+            return candidates;
+        }
+        Box searched = new Box(minX, minY, maxX, maxY, Utils.toEpochMinute(start), Utils.toEpochMinute(end));
+        collect(this.root, searched, candidates);
+        // Minutes drop seconds, so the window is checked on the exact times
+        candidates.removeIf(operation -> !operation.getEnd().isAfter(start) || !operation.getStart().isBefore(end));
+        return candidates;
+    }
+
+    private void collect(Node node, Box searched, List<IntelligenceGatheringOperation> candidates) {
+        for (Item child : node.children) {
+            if (!child.box.meets(searched)) {
+                continue;
+            }
+            if (node.leaf) {
+                candidates.add(((Entry) child).operation);
+            } else {
+                collect((Node) child, searched, candidates);
+            }
+        }
+    }
+
+    private void insert(Entry entry) {
+        Node node = this.root;
+        while (!node.leaf) {
+            node = chooseChild(node, entry.box);
+        }
+        node.add(entry);
+        adjust(node);
+    }
+
+    // The child needing the least enlargement, ties broken by the smaller child
+    private static Node chooseChild(Node node, Box box) {
+        Node best = null;
+        double bestEnlargement = Double.POSITIVE_INFINITY;
+        double bestVolume = Double.POSITIVE_INFINITY;
+        for (Item child : node.children) {
+            double volume = child.box.volume();
+            double enlargement = child.box.enlargedVolume(box) - volume;
+            if (enlargement < bestEnlargement || (enlargement == bestEnlargement && volume < bestVolume)) {
+                best = (Node) child;
+                bestEnlargement = enlargement;
+                bestVolume = volume;
+            }
+        }
+        return best;
+    }
+
+    // Splits overflowing nodes and refreshes the boxes from node up to the root
+    private void adjust(Node node) {
+        while (node != null) {
+            if (node.children.size() > MAX_ENTRIES) {
+                Node sibling = split(node);
+                if (node.parent == null) {
+                    Node newRoot = new Node(false);
+                    newRoot.add(node);
+                    newRoot.add(sibling);
+                    this.root = newRoot;
+                } else {
+                    node.parent.add(sibling);
+                }
+            }
+            node.recomputeBox();
+            node = node.parent;
+        }
+    }
+
+    // Quadratic split: the two children wasting the most space together seed the halves,
+    // the rest go where they enlarge the box least, keeping both halves at least MIN_ENTRIES
+    private static Node split(Node node) {
+        List<Item> remaining = new ArrayList<>(node.children);
+        int firstSeed = 0;
+        int secondSeed = 1;
+        double worstWaste = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < remaining.size(); i++) {
+            for (int j = i + 1; j < remaining.size(); j++) {
+                Box first = remaining.get(i).box;
+                Box second = remaining.get(j).box;
+                double waste = first.enlargedVolume(second) - first.volume() - second.volume();
+                if (waste > worstWaste) {
+                    worstWaste = waste;
+                    firstSeed = i;
+                    secondSeed = j;
+                }
+            }
+        }
+        Item second = remaining.remove(secondSeed);
+        Item first = remaining.remove(firstSeed);
+
+        node.children.clear();
+        Node sibling = new Node(node.leaf);
+        node.add(first);
+        sibling.add(second);
+        Box nodeBox = first.box.copy();
+        Box siblingBox = second.box.copy();
+        while (!remaining.isEmpty()) {
+            if (node.children.size() + remaining.size() == MIN_ENTRIES) {
+                for (Item item : remaining) {
+                    node.add(item);
+                }
+                break;
+            }
+            if (sibling.children.size() + remaining.size() == MIN_ENTRIES) {
+                for (Item item : remaining) {
+                    sibling.add(item);
+                }
+                break;
+            }
+            int next = 0;
+            double biggestPreference = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < remaining.size(); i++) {
+                Box box = remaining.get(i).box;
+                double preference = Math.abs((nodeBox.enlargedVolume(box) - nodeBox.volume())
+                        - (siblingBox.enlargedVolume(box) - siblingBox.volume()));
+                if (preference > biggestPreference) {
+                    biggestPreference = preference;
+                    next = i;
+                }
+            }
+            Item item = remaining.remove(next);
+            double nodeGrowth = nodeBox.enlargedVolume(item.box) - nodeBox.volume();
+            double siblingGrowth = siblingBox.enlargedVolume(item.box) - siblingBox.volume();
+            boolean toNode = nodeGrowth < siblingGrowth || (nodeGrowth == siblingGrowth
+                    && node.children.size() <= sibling.children.size());
+            if (toNode) {
+                node.add(item);
+                nodeBox.include(item.box);
+            } else {
+                sibling.add(item);
+                siblingBox.include(item.box);
+            }
+        }
+        sibling.recomputeBox();
+        return sibling;
+    }
+
+    // Dissolves nodes that fell below MIN_ENTRIES on the way up and reinserts their entries
+    private void condense(Node node) {
+        List<Entry> orphans = new ArrayList<>();
+        while (node.parent != null) {
+            Node parent = node.parent;
+            if (node.children.size() < MIN_ENTRIES) {
+                parent.children.remove(node);
+                collectEntries(node, orphans);
+            } else {
+                node.recomputeBox();
+            }
+            node = parent;
+        }
+        node.recomputeBox();
+        while (!this.root.leaf && this.root.children.size() == 1) {
+            this.root = (Node) this.root.children.get(0);
+            this.root.parent = null;
+        }
+        if (this.root.children.isEmpty()) {
+            this.root = new Node(true);
+        }
+        for (Entry orphan : orphans) {
+            insert(orphan);
+        }
+    }
+
+    private static void collectEntries(Node node, List<Entry> entries) {
+        for (Item child : node.children) {
+            if (node.leaf) {
+                entries.add((Entry) child);
+            } else {
+                collectEntries((Node) child, entries);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Immutable point in time view of the aircraft, the operations and their crews and the
+// drawer operations, read without taking any lock. Every MainSystem mutation publishes a
+// new version that shares all untouched operation views (and the aircraft ids and drawer
+// operations, unless those changed) with the previous one
+public class SystemSnapshot {
+    private static final SystemSnapshot EMPTY = new SystemSnapshot(0, new int[0], PersistentVector.empty(),
+            List.of());
+
+    private final long version;
+    private final int[] aircraftIds;
+    private final PersistentVector<OperationView> operations;
+    private final List<DrawerOperation> drawerOperations;
+
+    private SystemSnapshot(long version, int[] aircraftIds, PersistentVector<OperationView> operations,
+                           List<DrawerOperation> drawerOperations) {
+        this.version = version;
+        this.aircraftIds = aircraftIds;
+        this.operations = operations;
+        this.drawerOperations = drawerOperations;
+    }
+
+    public static SystemSnapshot empty() {
+        return EMPTY;
+    }
+
+    // Next version with the given aircraft added and the given operation views replaced or
+    // appended, keyed by the operation's position in the registry order. drawerOperations
+    // replaces all drawer operations, null keeps them
+    public SystemSnapshot withChanges(int[] addedAircraftIds, Map<Integer, OperationView> changedOperations,
+                                      List<DrawerOperation> drawerOperations) {
+        int[] aircraftIds = this.aircraftIds;
+        if (addedAircraftIds.length > 0) {
+            aircraftIds = Arrays.copyOf(this.aircraftIds, this.aircraftIds.length + addedAircraftIds.length);
+            System.arraycopy(addedAircraftIds, 0, aircraftIds, this.aircraftIds.length, addedAircraftIds.length);
+            Arrays.sort(aircraftIds);
+        }
+        return new SystemSnapshot(this.version + 1, aircraftIds, this.operations.withAll(changedOperations),
+                drawerOperations == null ? this.drawerOperations : List.copyOf(drawerOperations));
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    public int getAircraftCount() {
+        return this.aircraftIds.length;
+    }
+
+    public int[] getAircraftIds() {
+        return this.aircraftIds.clone();
+    }
+
+    public boolean hasAircraftId(int id) {
+        return Arrays.binarySearch(this.aircraftIds, id) >= 0;
+    }
+
+    public int getOperationCount() {
+        return this.operations.size();
+    }
+
+    // Operations in the order they were added to the system
+    public List<OperationView> getOperations() {
+        List<OperationView> result = new ArrayList<>(this.operations.size());
+        for (int i = 0; i < this.operations.size(); i++) {
+            result.add(this.operations.get(i));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    // Drawer operations in the order they were added to the system
+    public List<DrawerOperation> getDrawerOperations() {
+        return this.drawerOperations;
+    }
+
+    // Same open window semantics as MainSystem.getAllOperationsWithinTime
+    public List<OperationView> getOperationsWithinTime(LocalDateTime start, LocalDateTime end) {
+        List<OperationView> result = new ArrayList<>();
+        for (int i = 0; i < this.operations.size(); i++) {
+            OperationView operation = this.operations.get(i);
+            if (operation.overlaps(start, end)) {
+                result.add(operation);
+            }
+        }
+        return result;
+    }
+
+    public List<OperationView> getUnpreparedOperations(int xHours) {
+        List<OperationView> result = new ArrayList<>();
+        for (int i = 0; i < this.operations.size(); i++) {
+            OperationView operation = this.operations.get(i);
+            if (operation.isOperationInXTime(xHours) && !operation.isOperationReady()) {
+                result.add(operation);
+            }
+        }
+        return result;
+    }
+
+    public List<OperationView> getOperationsOfAircraft(int id) {
+        List<OperationView> result = new ArrayList<>();
+        for (int i = 0; i < this.operations.size(); i++) {
+            OperationView operation = this.operations.get(i);
+            if (operation.isAircraftAssigned(id)) {
+                result.add(operation);
+            }
+        }
+        return result;
+    }
+}
@@ -4,20 +4,67 @@ import org.json.JSONObject;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.HashSet;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Utils {
+    // DateTimeFormatter is immutable, so one instance is shared by every parser
+    public static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final LongAdder FILE_WRITES = Metrics.counter("json.fileWrites");
+    private static final LongAdder BYTES_WRITTEN = Metrics.counter("json.bytesWritten");
+    private static final LatencyHistogram WRITE_LATENCY = Metrics.histogram("json.writeJsonToFile");
+
     public static void writeJsonToFile(String filename, String jsonData) {
+        long started = System.nanoTime();
         try {
-            BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(filename));
+            BufferedWriter bufferedWriter = new BufferedWriter(new FileWriter(filename, StandardCharsets.UTF_8));
             bufferedWriter.write(jsonData);
             bufferedWriter.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
+        FILE_WRITES.increment();
+        BYTES_WRITTEN.add(utf8Length(jsonData));
+        WRITE_LATENCY.recordSince(started);
+    }
+
+    // Encoded length of the text in UTF-8, without encoding it
+    public static long utf8Length(String text) {
+        long length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // Written as '?', as the encoder replaces a lone surrogate
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    public static String aircraftIdsToJson(AircraftDirectory aircrafts) {
+        StringBuilder json = new StringBuilder("[");
+        for (Aircraft aircraft : aircrafts) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(aircraft.getId());
+        }
+        return json.append(']').toString();
     }
 
     public static JSONObject drawerOperationToJson(DrawerOperation op) {
@@ -46,20 +93,11 @@ public class Utils {
         jsonObject.put("operationName", taskInformation.getOperationName());
         jsonObject.put("taskDescription", taskInformation.getTaskDescription());
         jsonObject.put("numOfAircrafts", taskInformation.getNumOfAircrafts());
-        String startStr = op.getStart().toString();
-        startStr = startStr.replace('T', ' ');
-        jsonObject.put("start", startStr);
-        String endStr = op.getEnd().toString();
-        endStr = endStr.replace('T', ' ');
-        jsonObject.put("end", endStr);
-
-        HashSet<Integer> assignedAircrafts = op.getAssignedAircrafts();
-        JSONArray assignedAircraftsJson = new JSONArray();
-        for (Integer id : assignedAircrafts) {
-            assignedAircraftsJson.put(id);
-        }
+        jsonObject.put("start", dateTimeToString(op.getStart()));
+        jsonObject.put("end", dateTimeToString(op.getEnd()));
 
-        jsonObject.put("assignedAircrafts", assignedAircraftsJson);
+        // A copy, so the stored JSON does not follow later assignments
+        jsonObject.put("assignedAircrafts", op.getAssignedAircrafts().copy());
 
         if (op instanceof IntelligenceGatheringOperation) {
             jsonObject.put("cameraType", ((IntelligenceGatheringOperation) op).getCameraType());
@@ -72,13 +110,17 @@ public class Utils {
         return jsonObject;
     }
 
-    public static int getIndexByOperationName(JSONArray jsonOperations, String operationName) {
-        for (int i = 0; i < jsonOperations.length(); i++) {
-            if (((JSONObject) jsonOperations.get(i)).get("operationName").equals(operationName)) {
-                return i;
-            }
-        }
-        return -1;
+    public static String dateTimeToString(LocalDateTime dateTime) {
+        return dateTime.toString().replace('T', ' ');
+    }
+
+    // Wall clock minutes since 1970-01-01 00:00, the zone is irrelevant as long as both sides use it
+    public static long toEpochMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public static LocalDateTime fromEpochMinute(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
     }
 
     public static boolean isValidDateString(String dateString, String formatPattern) {